@@ -0,0 +1,86 @@
+import benchmark.UNSWArrayBenchmark.SortedSet;
+import benchmark.UNSWArrayBenchmark.SortedSetFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executor;
+
+// Adapters used by the benchmarks - see UNSWArrayBenchmark for why this lives in the default package
+public class SortedSets implements SortedSetFactory {
+
+    public SortedSet create(String impl, int capacity, int[] initial) {
+        if (impl.equals("UNSWArray") || impl.equals("UNSWArrayOptimistic") || impl.equals("UNSWArrayOffHeap")
+                || impl.equals("UNSWArrayCompressed")) {
+            UNSWArray a = new UNSWArray(capacity, 100, impl.equals("UNSWArrayOptimistic"), impl.equals("UNSWArrayOffHeap"),
+                    impl.equals("UNSWArrayCompressed"));
+            a.insertAll(initial);
+            return new SortedSet() {
+                public void insert(int x) { a.insert(x); }
+                public void delete(int x) { a.delete(x); }
+                public boolean member(int x) { return a.member(x); }
+                public void cleanup() { a.cleanup(); }
+                public CompletableFuture<Boolean> insertAsync(int x) { return a.insertAsync(x); }
+                public void setExecutor(Executor executor) { a.setExecutor(executor); }
+            };
+        } else if (impl.equals("PartitionedUNSWArray")) {
+            // 16 equal key ranges - with keys drawn uniformly from [0, capacity) no segment can hold more than its range
+            int partitions = Math.min(16, capacity);
+            PartitionedUNSWArray a = new PartitionedUNSWArray(partitions, capacity / partitions + partitions, capacity - 1);
+            a.insertAll(initial);
+            return new SortedSet() {
+                public void insert(int x) { a.insert(x); }
+                public void delete(int x) { a.delete(x); }
+                public boolean member(int x) { return a.member(x); }
+                public void cleanup() { a.cleanup(); }
+            };
+        } else if (impl.equals("LongUNSWArray")) {
+            // int keys widened to long - compare with ConcurrentSkipListSet below for the cost of 64-bit keys
+            LongUNSWArray a = new LongUNSWArray(capacity);
+            long[] keys = new long[initial.length];
+            for (int i = 0; i < initial.length; i++) {
+                keys[i] = initial[i];
+            }
+            a.insertAll(keys);
+            return new SortedSet() {
+                public void insert(int x) { a.insert(x); }
+                public void delete(int x) { a.delete(x); }
+                public boolean member(int x) { return a.member(x); }
+                public void cleanup() { a.cleanup(); }
+                public CompletableFuture<Boolean> insertAsync(int x) { return a.insertAsync(x); }
+                public void setExecutor(Executor executor) { a.setExecutor(executor); }
+            };
+        } else if (impl.equals("ConcurrentSkipListSet")) {
+            // the boxed alternative to LongUNSWArray - one Long and one skip list node per key, and nothing to clean up
+            ConcurrentSkipListSet<Long> a = new ConcurrentSkipListSet<>();
+            for (int x : initial) {
+                a.add((long) x);
+            }
+            return new SortedSet() {
+                public void insert(int x) { a.add((long) x); }
+                public void delete(int x) { a.remove((long) x); }
+                public boolean member(int x) { return a.contains((long) x); }
+                public void cleanup() { }
+            };
+        } else if (impl.equals("RoaringUNSWArray")) {
+            // no capacity and nothing for cleanup to compact - the same keys in per-chunk containers instead of one sorted array
+            RoaringUNSWArray a = new RoaringUNSWArray();
+            a.insertAll(initial);
+            return new SortedSet() {
+                public void insert(int x) { a.insert(x); }
+                public void delete(int x) { a.delete(x); }
+                public boolean member(int x) { return a.member(x); }
+                public void cleanup() { a.cleanup(); }
+            };
+        } else if (impl.equals("UNSWArraySimple")) {
+            // UNSWArraySimple has no capacity (it grows on every insert) and no public cleanup
+            UNSWArraySimple a = new UNSWArraySimple(initial.clone());
+            return new SortedSet() {
+                public void insert(int x) { a.insert(x); }
+                public void delete(int x) { a.delete(x); }
+                public boolean member(int x) { return a.member(x); }
+                public void cleanup() { }
+            };
+        }
+        throw new IllegalArgumentException("Unknown implementation: " + impl);
+    }
+}
@@ -0,0 +1,266 @@
+package benchmark;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// JMH benchmarks comparing UNSWArray and UNSWArraySimple
+// Replaces the wall-clock timing in TestComparison with reproducible ops/sec and latency percentiles
+//
+// Run everything with:          ./gradlew jmh
+// Or pick parameters / threads: ./gradlew jmhJar && java -jar lib/build/libs/lib-jmh.jar UNSWArrayBenchmark.mixed -p capacity=1000000 -p mix=50/50 -t 16
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class UNSWArrayBenchmark {
+
+    // Small adapter so both implementations can be driven by the same benchmark code
+    public interface SortedSet {
+        void insert(int x);
+        void delete(int x);
+        boolean member(int x);
+        void cleanup();
+
+        // Sets without an asynchronous insert just insert straight away
+        default CompletableFuture<Boolean> insertAsync(int x) {
+            insert(x);
+            return CompletableFuture.completedFuture(true);
+        }
+
+        // Where the set runs work it hands off (see AbstractUNSWArray.setExecutor) - nothing to set for the others
+        default void setExecutor(Executor executor) {
+        }
+    }
+
+    public interface SortedSetFactory {
+        // "initial" holds sorted, distinct keys the set starts with
+        SortedSet create(String impl, int capacity, int[] initial);
+    }
+
+    // JMH refuses benchmarks in the default package, and classes in a named package cannot import the default package
+    // where UNSWArray lives - so the adapters live in the default package (SortedSets) and are looked up reflectively once
+    static SortedSet create(String impl, int capacity, int[] initial) {
+        try {
+            SortedSetFactory factory = (SortedSetFactory) Class.forName("SortedSets").getDeclaredConstructor().newInstance();
+            return factory.create(impl, capacity, initial);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to load SortedSets", e);
+        }
+    }
+
+    // === Writer threads ===
+    // The fill benchmarks run their writers on platform threads by default, or on virtual threads with -p threads=virtual on Java 21+
+    // (where writers can go far higher, eg -p writers=100000). Virtual threads are made through reflection so the build stays on
+    // Java 11, and the set is given a virtual thread per task executor for the work it hands off too
+    // Add -Djdk.tracePinnedThreads=full to the JVM args (Java 21 to 23) to have any writer that pins its carrier thread reported
+
+    private static volatile Executor virtualExecutor;
+
+    static ThreadFactory threadFactory(String threads) {
+        if (threads.equals("platform")) {
+            return Thread::new;
+        }
+
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later", e);
+        }
+    }
+
+    static void useThreads(SortedSet set, String threads) {
+        if (threads.equals("platform")) {
+            return;
+        }
+
+        try {
+            if (virtualExecutor == null) {
+                virtualExecutor = (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later", e);
+        }
+        set.setExecutor(virtualExecutor);
+    }
+
+    // === Mixed read / write workload ===
+    // Keys are drawn uniformly from [0, capacity) so the live set can never exceed the capacity of the array
+    // Writes are split evenly between inserts and deletes which keeps the occupancy roughly at the prefill level
+    // Thread count is controlled by JMH itself (-t / -Pjmh.threads)
+    @State(Scope.Benchmark)
+    public static class MixedState {
+        @Param({"UNSWArray", "UNSWArrayOptimistic", "UNSWArrayOffHeap", "UNSWArrayCompressed", "PartitionedUNSWArray", "RoaringUNSWArray",
+                "LongUNSWArray", "ConcurrentSkipListSet", "UNSWArraySimple"})
+        public String impl;
+
+        @Param({"1000", "100000", "1000000", "10000000"})
+        public int capacity;
+
+        // "reads/writes" as a percentage split
+        @Param({"95/5", "50/50", "0/100"})
+        public String mix;
+
+        // fraction of the key range inserted before each iteration
+        @Param({"0.5"})
+        public double prefill;
+
+        SortedSet set;
+        int readPercent;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            readPercent = Integer.parseInt(mix.substring(0, mix.indexOf('/')));
+
+            // every (1 / prefill)-th key so the prefilled keys are spread across the key range
+            int step = Math.max(1, (int) Math.round(1 / prefill));
+            int[] initial = new int[(capacity + step - 1) / step];
+            for (int i = 0; i < initial.length; i++) {
+                initial[i] = i * step;
+            }
+
+            set = create(impl, capacity, initial);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void mixed(MixedState s, Blackhole bh) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        int key = rnd.nextInt(s.capacity);
+        int op = rnd.nextInt(100);
+
+        if (op < s.readPercent) {
+            bh.consume(s.set.member(key));
+        } else if ((op & 1) == 0) {
+            s.set.insert(key);
+        } else {
+            s.set.delete(key);
+        }
+    }
+
+    // === Insert-only workload ===
+    // Fills a fresh set with every key in [0, capacity) split between "writers" threads (like TestComparison)
+    // Each key is inserted exactly once so the set is never asked to hold more than its capacity
+    @State(Scope.Benchmark)
+    public static class FillState {
+        @Param({"UNSWArray", "PartitionedUNSWArray", "UNSWArraySimple"})
+        public String impl;
+
+        @Param({"1000", "10000", "100000"})
+        public int capacity;
+
+        @Param({"1", "2", "4", "16"})
+        public int writers;
+
+        // "platform" or "virtual" - see threadFactory
+        @Param({"platform"})
+        public String threads;
+
+        SortedSet set;
+        ThreadFactory factory;
+
+        @Setup(Level.Invocation)
+        public void setup() {
+            set = create(impl, capacity, new int[0]);
+            factory = threadFactory(threads);
+            useThreads(set, threads);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = 1)
+    @Measurement(iterations = 10, batchSize = 1)
+    public void fill(FillState s) throws InterruptedException {
+        Thread[] threads = new Thread[s.writers];
+
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = s.factory.newThread(() -> {
+                for (int i = offset; i < s.capacity; i += s.writers) {
+                    s.set.insert(i);
+                }
+            });
+            threads[t].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    // === Asynchronous insert-only workload ===
+    // The same fill as above but every writer keeps all of its inserts in flight with insertAsync and only waits for them at the end
+    // Stands in for a very large number of producer threads - none of the writers ever parks waiting for another thread's drain
+    @State(Scope.Benchmark)
+    public static class AsyncFillState {
+        @Param({"UNSWArray", "UNSWArrayOptimistic"})
+        public String impl;
+
+        @Param({"1000", "10000", "100000"})
+        public int capacity;
+
+        @Param({"1", "2", "4", "16"})
+        public int writers;
+
+        // "platform" or "virtual" - see threadFactory
+        @Param({"platform"})
+        public String threads;
+
+        SortedSet set;
+        ThreadFactory factory;
+
+        @Setup(Level.Invocation)
+        public void setup() {
+            set = create(impl, capacity, new int[0]);
+            factory = threadFactory(threads);
+            useThreads(set, threads);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = 1)
+    @Measurement(iterations = 10, batchSize = 1)
+    public void fillAsync(AsyncFillState s) throws InterruptedException {
+        Thread[] threads = new Thread[s.writers];
+
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = s.factory.newThread(() -> {
+                CompletableFuture<?>[] futures = new CompletableFuture<?>[(s.capacity - offset + s.writers - 1) / s.writers];
+                int n = 0;
+                for (int i = offset; i < s.capacity; i += s.writers) {
+                    futures[n++] = s.set.insertAsync(i);
+                }
+                CompletableFuture.allOf(futures).join();
+            });
+            threads[t].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
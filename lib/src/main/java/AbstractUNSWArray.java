@@ -0,0 +1,821 @@
+import java.util.concurrent.locks.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// The engine shared by every key type of the sorted set - UNSWArray (int keys) and LongUNSWArray (long keys)
+// Everything here works on slots and never looks at the keys themselves: the global lock, the sizeCheck permits, the insert queue and
+// its group commit drain, the occupancy bitmap, cleanup and background compaction, auto grow and metrics
+// The subclasses keep the array of keys and everything that compares them (searching, inserting into the array, deletes and reads)
+// Each subclass also brings its own insert queue (a RingBuffer of its key width) and drain buffer, so queued keys take no more room
+// than the keys themselves - the engine only ever hands a key to the queue (as a long) and tells the subclass when to drain it
+public abstract class AbstractUNSWArray {
+    // === Class Attributes ===
+
+    // Which slots of the array are live - the only record of it, so every key (including -1) can be stored
+    // A slot whose bit is clear is a gap (free space or a tombstone left by a delete) and its value means nothing
+    // Lets searches jump straight over runs of gaps, and must be kept in step with every write to the array
+    OccupancyBitmap occupied;
+
+    // Auto grow mode (see enableAutoGrow) - the array never shrinks below the size it was created with
+    final int initialCapacity;
+    volatile int maxCapacity;
+
+    // ReentrantReadWriteLock to prevent multiple writes occuring at the same time while allowing multiple readers if no writers
+    // Also supports a fairness parameter which we will make use of
+    // In optimistic read mode this is instead a view of stampedLock (which has no fairness)
+    final ReadWriteLock globalLock;
+    final Lock r;
+    final Lock w;
+
+    // Only set in optimistic read mode - lets member() read the array without taking the read lock at all and just check afterwards
+    // that no writer got in while it was reading
+    final StampedLock stampedLock;
+
+    // A queue to buffer insert operations - meaning in theory we can gather a number of insert operations in the queue and then apply them all at once
+    // Holds primitives of the subclass's key width so queueing a value never allocates
+    final RingBuffer insertQueue;
+
+    // ReentrantLock to allow only one process to drain from the insert queue at a time
+    final ReentrantLock insertQueueDrainLock;
+
+    // Semaphore to block array from exceeding maximum size and block calls to insert until there is space
+    final Semaphore sizeCheck;
+
+    // Number of live values in the array - deletes run concurrently under the read lock so this must be atomic
+    final AtomicInteger liveCount;
+
+    // Background compaction (see startCompactor) - the thread running it and its position in the current pass
+    // Slots between compactRead (exclusive) and compactWrite (inclusive) are always gaps while a pass is running
+    // Everything after compactWrite has already been compacted in this pass
+    private volatile Thread compactor;
+    private int compactRead = -1;
+    private int compactWrite = -1;
+
+    // Optional write ahead log (see UNSWArray.enableWriteAheadLog) - null when inserts and deletes aren't being logged
+    volatile WriteAheadLog log;
+
+    // How many queued inserts have been drained and applied so far (every value put in the insert queue below this position) and
+    // the sequence number of the log record that covers them - inserts wait on drainedUpdated until their value is covered
+    // Only written by the thread holding insertQueueDrainLock (loggedSequence first, so reading drainedThrough then loggedSequence
+    // never pairs a position with an older record)
+    // A Lock / Condition rather than a monitor so a waiting virtual thread (Java 21+) never pins its carrier thread
+    private volatile long drainedThrough;
+    private volatile long loggedSequence;
+    private final ReentrantLock drainedLock = new ReentrantLock();
+    private final Condition drainedUpdated = drainedLock.newCondition();
+
+    // Futures handed out by insertAsync that haven't completed yet - keyed by the insert queue position of their value
+    private final ConcurrentSkipListMap<Long, CompletableFuture<Boolean>> pendingInserts = new ConcurrentSkipListMap<>();
+
+    // Runs the work an insert hands off rather than wait for itself (see setExecutor)
+    private volatile Executor executor = ForkJoinPool.commonPool();
+
+    // Occupancy and contention metrics - see UNSWArrayMetrics
+    final UNSWArrayMetrics metrics;
+
+    // === Key Storage ===
+    // Implemented by each key type - all of these are only called while holding the global write lock
+
+    // Number of slots in the array
+    abstract int length();
+
+    // Copies the key in slot "from" into slot "to"
+    abstract void moveSlot(int from, int to);
+
+    // Replaces the array with a new one of "newCapacity" slots holding the live keys of the current one at its end, in the same order
+    // The caller takes care of the occupancy bitmap
+    abstract void reallocate(int newCapacity);
+
+    // Called by cleanup once every live key has been packed at the end of the array, from "liveFrom" on - a chance to give back
+    // memory. Nothing to do unless the variant overrides it
+    void trim(int liveFrom) {
+    }
+
+    // === Insert Queue Draining ===
+    // Implemented by each key type around a drain buffer of its own - only called by the thread holding insertQueueDrainLock
+
+    // Moves everything currently in the insert queue into the drain buffer and returns how many values were moved
+    abstract int drainKeys();
+
+    // Sorts the first "count" drained keys and removes duplicates - returns how many distinct keys are left
+    abstract int sortDrainedKeys(int count);
+
+    // Applies the first "count" drained keys to the array and returns how many were actually added - called holding the write lock
+    abstract int applyDrainedKeys(int count);
+
+    // Appends an insert record for the same keys to "log" and returns its sequence number - only a variant with a write ahead log
+    // ever has a log to append to
+    long logDrainedKeys(WriteAheadLog log, int count) {
+        return 0;
+    }
+
+    // === Private Helper Functions ===
+
+    // Acquire the global write lock and return the time it was acquired so unlockWrite can record how long it was held
+    long lockWrite() {
+        w.lock();
+        return System.nanoTime();
+    }
+
+    // Like lockWrite but gives up once "deadline" (System.nanoTime) has passed - returns false if the lock wasn't acquired
+    // An interrupt counts as running out of time (the interrupt is kept for the caller)
+    boolean tryLockWrite(long deadline) {
+        try {
+            return w.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    void unlockWrite(long lockedAt) {
+        long heldFor = System.nanoTime() - lockedAt;
+        w.unlock();
+        metrics.writeLockHold.record(heldFor);
+    }
+
+    // Try to acquire permits from the sizeCheck semaphore without waiting for a delete to hand any back
+    // (a timed tryAcquire with no timeout still respects the semaphore's fairness unlike the untimed one)
+    boolean tryAcquirePermits(int permits) throws InterruptedException {
+        if (sizeCheck.tryAcquire(permits, 0, TimeUnit.NANOSECONDS)) {
+            return true;
+        }
+
+        // In auto grow mode make room instead of waiting - unless the array has reached its maximum capacity
+        while (this.grow(permits)) {
+            if (sizeCheck.tryAcquire(permits, 0, TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // Acquire permits from the sizeCheck semaphore - timing how long we wait if the array is full
+    void acquirePermits(int permits) throws InterruptedException {
+        if (this.tryAcquirePermits(permits)) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        sizeCheck.acquire(permits);
+        metrics.permitWait.record(System.nanoTime() - start);
+    }
+
+    // Same as acquirePermits but gives up after "timeoutNanos" - returns whether the permits were acquired
+    private boolean acquirePermits(int permits, long timeoutNanos) throws InterruptedException {
+        if (this.tryAcquirePermits(permits)) {
+            return true;
+        }
+
+        long start = System.nanoTime();
+        boolean acquired = sizeCheck.tryAcquire(permits, timeoutNanos, TimeUnit.NANOSECONDS);
+        metrics.permitWait.record(System.nanoTime() - start);
+
+        return acquired;
+    }
+
+    // The calling function must have acquired the global write lock before using this function to ensure mutex
+    // Provides the actual logic of the cleanup operation and pushes gaps as far to the start as possible up to "upTo"
+    void forceCleanup(int upTo) {
+
+        if (upTo <= 0) {
+            return; // don't do anything
+        } else {
+            // read down from index upTo to index 0 and put all live values immediately before index upTo
+            int editIndex = upTo;
+
+            for (int readIndex = occupied.prevSetBit(upTo); readIndex != -1; readIndex = occupied.prevSetBit(readIndex - 1)) {
+                this.moveSlot(readIndex, editIndex);
+                editIndex--;
+            }
+
+            // everything at the beginning of the array is now a gap
+            occupied.clearRange(0, editIndex + 1);
+            occupied.setRange(editIndex + 1, upTo + 1);
+        }
+    }
+
+    // Group commit - whichever thread holds insertQueueDrainLock takes everything currently in the insert queue and applies it to the
+    // array as one batch under a single write lock acquisition, so the more inserts that pile up the cheaper each one becomes
+    // Returns 1 if this thread took care of the inserts into the array or 0 if another thread is taking care of them
+    private int drainInsertQueue() {
+        return this.drainInsertQueue(false, 0);
+    }
+
+    // If "timed" gives up instead of waiting past "deadline" (System.nanoTime) for the write lock and returns -1 - the write lock is
+    // taken before anything is taken out of the queue so giving up leaves the queue as it was, for the next drain to apply
+    private int drainInsertQueue(boolean timed, long deadline) {
+        int result = 0;
+
+        // Keep going while there is anything left in the queue - a thread that queued a value while we were applying the last batch
+        // will have failed to get the lock and left it to us, so we can't stop until the queue is empty
+        while (!insertQueue.isEmpty() && insertQueueDrainLock.tryLock()) {
+            boolean locked = false;
+            long lockedAt = 0;
+
+            // If we get here we have obtained the insertQueueDrainLock - enclose remaining code in try / finally for safety
+            try {
+                if (timed) {
+                    if (!this.tryLockWrite(deadline)) {
+                        return -1;
+                    }
+                    locked = true;
+                    lockedAt = System.nanoTime();
+                }
+
+                // Take everything currently in the queue
+                int drained = this.drainKeys();
+
+                if (drained == 0) {
+                    if (locked) {
+                        this.unlockWrite(lockedAt);
+                    }
+                    continue;
+                }
+
+                metrics.drainBatches.record(drained);
+
+                int count = this.sortDrainedKeys(drained);
+                int added;
+                WriteAheadLog log = this.log;
+                long sequence = 0;
+
+                // We also need to now acquire the globalLock (writeLock) so we can update the array and ensure no other writes are occurring or readers are reading
+                if (!locked) {
+                    lockedAt = this.lockWrite();
+                }
+
+                // Try / finally construct recommended to ensure prevention of deadlock
+                try {
+                    added = this.applyDrainedKeys(count);
+
+                    // logged while still holding the write lock so records are in the same order the array changed in
+                    if (log != null) {
+                        sequence = this.logDrainedKeys(log, count);
+                    }
+                } finally {
+                    // release the global write lock allowing readers to read again
+                    this.unlockWrite(lockedAt);
+                }
+
+                // every queued value holds a permit - hand back the ones for values that were already in the array
+                sizeCheck.release(drained - added);
+                liveCount.addAndGet(added);
+
+                // Group commit - one fsync for the whole batch, done while still holding the drain lock so inserts queued in the meantime
+                // pile up into the next batch. A failure is reported to the inserting threads by their own sync in awaitLogged
+                if (log != null) {
+                    try {
+                        log.sync(sequence);
+                    } catch (IOException e) {
+                        // see above
+                    }
+                }
+
+                drainedLock.lock();
+                try {
+                    loggedSequence = sequence;
+                    drainedThrough += drained;
+                    drainedUpdated.signalAll();
+                } finally {
+                    drainedLock.unlock();
+                }
+
+                result = 1;
+
+            } finally {
+                // release the insert queue drain lock allowing for insertion operations to occur again
+                insertQueueDrainLock.unlock();
+            }
+
+            // completed outside the drain lock so whatever the futures run next can't hold up the next batch
+            this.completeAsyncInserts();
+        }
+
+        return result; // 1 is a special value to indicate success and this thread took care of the inserts into the array
+    }
+
+    // Queues a key insertAsync already holds a permit for but found no room in the queue for - waiting for room, which is only ever
+    // as long as the drain in progress. Run on the executor so insertAsync itself never waits
+    private CompletableFuture<Boolean> queueAsync(long key) {
+        long position;
+
+        try {
+            position = insertQueue.put(key);
+        } catch (InterruptedException e) {
+            sizeCheck.release();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return this.awaitAsync(position);
+    }
+
+    // Registers a future for the insert queued at "position" and drains the queue if no other thread is already doing it
+    private CompletableFuture<Boolean> awaitAsync(long position) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        pendingInserts.put(position, future);
+
+        this.drainInsertQueue();
+        // our value may have been drained before the future was registered
+        this.completeAsyncInserts();
+
+        return future;
+    }
+
+    // Waits until the insert queued at "position" has been applied by whichever thread drained it
+    // Returns the sequence number of a log record covering it
+    private long awaitDrained(long position) {
+        return this.awaitDrained(position, false, 0);
+    }
+
+    // If "timed" stops waiting once "deadline" (System.nanoTime) has passed and returns -1 instead
+    private long awaitDrained(long position, boolean timed, long deadline) {
+        if (drainedThrough > position) {
+            return loggedSequence;
+        }
+
+        drainedLock.lock();
+
+        // Try / finally block for safety
+        try {
+            boolean interrupted = false;
+
+            while (drainedThrough <= position) {
+                try {
+                    if (!timed) {
+                        drainedUpdated.await();
+                    } else if (drainedUpdated.awaitNanos(deadline - System.nanoTime()) <= 0 && drainedThrough <= position) {
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    // the value is already queued so we have to see it through - remember the interrupt for later
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return drainedThrough > position ? loggedSequence : -1;
+        } finally {
+            drainedLock.unlock();
+        }
+    }
+
+    // Drains the insert queue on the executor - for a queued value whose inserting thread has given up waiting to drain it
+    private void handOffDrain() {
+        try {
+            executor.execute(this::drainInsertQueue);
+        } catch (RejectedExecutionException e) {
+            // nowhere else to run it - the next insert drains the queue instead
+        }
+    }
+
+    // Waits until the insert queued at "position" has been applied and logged by whichever thread drained it, then makes sure
+    // its log record is on disk
+    private void awaitLogged(WriteAheadLog log, long position) {
+        this.syncLog(log, this.awaitDrained(position));
+    }
+
+    // Completes every insertAsync future whose value has been drained - called by the draining thread after each batch and by
+    // insertAsync itself in case its value was drained before its future was registered
+    // The drainer has already synced the log for everything drained, so the sync here only reports a failure to the futures
+    private void completeAsyncInserts() {
+        long through = drainedThrough;
+        long sequence = loggedSequence;
+        IOException failure = null;
+
+        WriteAheadLog log = this.log;
+        if (log != null && sequence != 0 && !pendingInserts.isEmpty()) {
+            try {
+                log.sync(sequence);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        Map.Entry<Long, CompletableFuture<Boolean>> entry;
+        while ((entry = pendingInserts.firstEntry()) != null && entry.getKey() < through) {
+            // only whoever removes the entry completes it
+            if (pendingInserts.remove(entry.getKey(), entry.getValue())) {
+                if (failure == null) {
+                    entry.getValue().complete(true);
+                } else {
+                    entry.getValue().completeExceptionally(new UncheckedIOException(failure));
+                }
+            }
+        }
+    }
+
+    // Blocks until log record "sequence" is durable - the public methods can't throw IOException so a failure is passed on unchecked
+    void syncLog(WriteAheadLog log, long sequence) {
+        try {
+            log.sync(sequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The calling function must have acquired the global write lock before using this function to ensure mutex
+    // Replaces the array with a compacted copy of "newCapacity" slots - the caller must make sure every live value fits
+    // and adjust the sizeCheck permits to match
+    private void resize(int newCapacity) {
+        int live = occupied.cardinality(0, this.length());
+
+        // copies the live values across to the end of the new array
+        this.reallocate(newCapacity);
+
+        // everything before them is a gap
+        OccupancyBitmap resizedOccupied = new OccupancyBitmap(newCapacity);
+        resizedOccupied.setRange(newCapacity - live, newCapacity);
+        occupied = resizedOccupied;
+
+        // a background compaction pass can't carry on over a different array
+        compactRead = -1;
+        compactWrite = -1;
+    }
+
+    // Called by inserts that would otherwise have to wait for room - in auto grow mode doubles the capacity (at least enough for "permits"
+    // more values, at most maxCapacity) and hands the new slots out as permits
+    // Returns false if the array can't grow so the caller has to wait for deletes instead
+    private boolean grow(int permits) {
+        if (maxCapacity <= 0) {
+            return false;
+        }
+
+        long lockedAt = this.lockWrite();
+
+        // Try / finally block for safety
+        try {
+            // someone else has already made room
+            if (sizeCheck.availablePermits() >= permits) {
+                return true;
+            }
+
+            if (this.length() >= maxCapacity) {
+                return false;
+            }
+
+            int oldCapacity = this.length();
+            int newCapacity = (int) Math.min(maxCapacity, Math.max(2L * oldCapacity, (long) oldCapacity + permits));
+
+            this.resize(newCapacity);
+            sizeCheck.release(newCapacity - oldCapacity);
+        } finally {
+            this.unlockWrite(lockedAt);
+        }
+
+        return true;
+    }
+
+    // The calling function must have acquired the global write lock before using this function to ensure mutex
+    // In auto grow mode halves the capacity (never below the size the array was created with) once less than a quarter of it is in use
+    private void shrinkIfSparse() {
+        if (maxCapacity <= 0 || this.length() <= initialCapacity || liveCount.get() >= this.length() / 4) {
+            return;
+        }
+
+        int newCapacity = Math.max(initialCapacity, this.length() / 2);
+
+        // take away the permits for the slots being removed - if queued inserts are holding them we can't shrink yet
+        if (sizeCheck.tryAcquire(this.length() - newCapacity)) {
+            this.resize(newCapacity);
+        }
+    }
+
+    // The calling function must have acquired the global write lock before using this function to ensure mutex
+    // Does a bounded amount of the same work as forceCleanup(length - 1) - moving at most "maxSteps" values towards the end
+    // of the array - and returns true once the whole array has been compacted
+    // The position is kept between calls so the write lock is only ever held for one small chunk at a time
+    private boolean compactStep(int maxSteps) {
+        // start a new pass from the end of the array
+        if (compactWrite < 0) {
+            compactRead = this.length() - 1;
+            compactWrite = this.length() - 1;
+        }
+
+        for (int step = 0; step < maxSteps; step++) {
+            // Inserts since the last chunk may have put values between compactRead and compactWrite
+            // Leave them (and any gaps after them) where they are - the next pass will pick up anything left behind
+            int inserted = occupied.prevSetBit(compactWrite);
+            while (inserted > compactRead) {
+                compactWrite = inserted - 1;
+                inserted = occupied.prevSetBit(compactWrite);
+            }
+
+            // the next live value to move - if there are none left everything up to compactRead is a gap and the pass is finished
+            int readIndex = occupied.prevSetBit(compactRead);
+
+            if (readIndex == -1) {
+                compactRead = -1;
+                compactWrite = -1;
+                this.shrinkIfSparse();
+                return true;
+            }
+
+            if (readIndex != compactWrite) {
+                this.moveSlot(readIndex, compactWrite);
+                occupied.set(compactWrite);
+                occupied.clear(readIndex);
+            }
+
+            compactRead = readIndex - 1;
+            compactWrite--;
+
+            // every slot has been filled
+            if (compactWrite < 0) {
+                compactRead = -1;
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // Share of the slots that are tombstones
+    private double tombstoneRatio() {
+        return (double) getTombstoneCount() / this.length();
+    }
+
+    // === Inserts ===
+    // The key type independent part of each variant's insert, tryInsert and insertAsync - see UNSWArray for what they return
+
+    int insertKey(long key) {
+
+        WriteAheadLog log = this.log;
+        long position;
+
+        // First add the item to the insert queue - we allow it to block if the queue is full!
+        try {
+            // wait until there is room in the array - the sizeCheck semaphore ensures this
+            // deletion operations will release permits back to the semaphore and unblock this if required
+            this.acquirePermits(1);
+            // If put() is interrupted without succeeding we want to hand back a permit
+            try {
+                position = insertQueue.put(key);
+            } catch (InterruptedException e) {
+                // Error handling - hand back permit
+                sizeCheck.release();
+                return -1;
+            }
+        } catch (InterruptedException e) {
+            return -1; // we were unable to put it in the queue
+        }
+
+        // Now attempt to drain the insert queue ourselves
+        int result = this.drainInsertQueue();
+
+        // With a write ahead log the insert isn't finished until it is durable - even if another thread applied it
+        if (log != null) {
+            this.awaitLogged(log, position);
+        }
+
+        return result;
+    }
+
+    int tryInsertKey(long key, long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        WriteAheadLog log = this.log;
+        long position;
+
+        try {
+            if (!this.acquirePermits(1, unit.toNanos(timeout))) {
+                return 0;
+            }
+            // If offer() is interrupted or times out we want to hand back the permit
+            try {
+                position = insertQueue.offer(key, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                sizeCheck.release();
+                return -1;
+            }
+            if (position == -1) {
+                sizeCheck.release();
+                return 0;
+            }
+        } catch (InterruptedException e) {
+            return -1;
+        }
+
+        // Once the value is queued it will be applied - either by us or by whoever holds the drain lock - but we only wait for that
+        // until the deadline. If we can't get the write lock in time to drain it ourselves the drain is handed to the executor so
+        // the value isn't left sitting in the queue until the next insert
+        if (this.drainInsertQueue(true, deadline) == -1) {
+            this.handOffDrain();
+        }
+        long sequence = this.awaitDrained(position, true, deadline);
+
+        if (sequence == -1) {
+            return 2;
+        }
+
+        // the log sync is not bounded by the timeout - it is only as long as an fsync
+        if (log != null) {
+            this.syncLog(log, sequence);
+        }
+
+        return 1;
+    }
+
+    CompletableFuture<Boolean> insertKeyAsync(long key) {
+        try {
+            if (!this.tryAcquirePermits(1)) {
+                return CompletableFuture.completedFuture(false);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.completedFuture(false);
+        }
+
+        long position = insertQueue.offer(key);
+
+        // the queue is full - rather than wait for room the value is queued from the executor
+        if (position == -1) {
+            try {
+                return CompletableFuture.supplyAsync(() -> this.queueAsync(key), executor).thenCompose(result -> result);
+            } catch (RejectedExecutionException e) {
+                sizeCheck.release();
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        return this.awaitAsync(position);
+    }
+
+    // Sets the executor that runs the work an insert hands off instead of waiting for it - insertAsync's wait for room when the
+    // insert queue is full, and the drain of a value tryInsert ran out of time to apply. Defaults to ForkJoinPool.commonPool()
+    // Since the hand off may block on the write lock, on Java 21+ Executors.newVirtualThreadPerTaskExecutor() is a good choice
+    // (the build itself stays on Java 11 so it can't be the default)
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    // === Metrics ===
+
+    public UNSWArrayMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getCapacity() {
+        return this.length();
+    }
+
+    // Number of live values
+    public int getLiveCount() {
+        return liveCount.get();
+    }
+
+    // Number of gaps sitting between live values, as opposed to the free space at the start of the array
+    // These are what cleanup() gets rid of
+    public int getTombstoneCount() {
+        int firstLive = occupied.nextSetBit(0);
+        if (firstLive == -1) {
+            return 0;
+        }
+
+        return Math.max(0, this.length() - firstLive - liveCount.get());
+    }
+
+    // Number of inserts that can still be accepted before insert blocks
+    public int getFreePermits() {
+        return sizeCheck.availablePermits();
+    }
+
+    // Number of inserts waiting in the insert queue
+    public int getQueueDepth() {
+        return insertQueue.size();
+    }
+
+    // === Public Methods ===
+
+    // Public facing cleanup function to remove gaps
+    // Wrapper around mutex forceCleanup function
+    public boolean cleanup() {
+        // First acquire global write lock
+        long lockedAt = this.lockWrite();
+
+        // Try / finally block for safety
+        try {
+            // Perform a cleanup which requires mutex
+            this.forceCleanup(this.length() - 1);
+
+            int firstLive = occupied.nextSetBit(0);
+            this.trim(firstLive == -1 ? this.length() : firstLive);
+
+            // any background compaction pass is now redundant
+            compactRead = -1;
+            compactWrite = -1;
+
+            this.shrinkIfSparse();
+        } finally {
+            this.unlockWrite(lockedAt);
+        }
+
+        return true;
+    }
+
+    // Lets the array grow instead of making inserts wait when it is full - the capacity doubles each time up to "maxCapacity"
+    // Once cleanup (or a background compaction pass) leaves it less than a quarter full it halves again, down to its original size
+    public void enableAutoGrow(int maxCapacity) {
+        this.maxCapacity = maxCapacity;
+    }
+
+    // Back to a fixed capacity - inserts wait for deletes when the array is full (the array keeps whatever size it has grown to)
+    public void disableAutoGrow() {
+        this.maxCapacity = 0;
+    }
+
+    // Starts a background thread that compacts the array a chunk at a time instead of all at once like cleanup()
+    // Passes start whenever more than "tombstoneRatio" of the array is gaps sitting between live values and go on until there are none
+    // left, and each chunk moves at most "chunkSize" values under the write lock so readers and writers are never held up for long
+    // The thread checks the ratio again every "intervalMillis" while there is nothing to do
+    public synchronized void startCompactor(double tombstoneRatio, int chunkSize, long intervalMillis) {
+        if (compactor != null) {
+            return; // already running
+        }
+
+        compactor = new Thread(() -> {
+            // Once the threshold starts a pass, passes carry on until one finishes with no tombstones at all - otherwise values deleted
+            // behind the pass (or gaps skipped because of inserts) would sit there until the ratio went over the threshold again
+            boolean compacting = false;
+
+            while (Thread.currentThread() == compactor) {
+                if (!compacting && tombstoneRatio() <= tombstoneRatio) {
+                    try {
+                        Thread.sleep(intervalMillis);
+                    } catch (InterruptedException e) {
+                        // stopCompactor() interrupts us - the loop condition takes care of exiting
+                    }
+                    continue;
+                }
+
+                long lockedAt = this.lockWrite();
+
+                // Try / finally block for safety
+                try {
+                    boolean passFinished = this.compactStep(chunkSize);
+                    compacting = !passFinished || getTombstoneCount() > 0;
+                } finally {
+                    this.unlockWrite(lockedAt);
+                }
+            }
+        }, getClass().getSimpleName() + "-compactor");
+
+        compactor.setDaemon(true);
+        compactor.start();
+    }
+
+    // Stops the background compaction thread (if running) and waits for it to finish its current chunk
+    public void stopCompactor() throws InterruptedException {
+        Thread thread;
+
+        synchronized (this) {
+            thread = compactor;
+            compactor = null;
+        }
+
+        if (thread != null) {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    // === Constructors ===
+
+    // The subclass creates the array of "size" slots and the insert queue (of whatever capacity it was asked for) itself
+    AbstractUNSWArray(int size, RingBuffer insertQueue, boolean optimisticReads) {
+        // Every slot starts out as a gap
+        this.occupied = new OccupancyBitmap(size);
+        this.initialCapacity = size;
+        this.liveCount = new AtomicInteger();
+        this.metrics = new UNSWArrayMetrics(this);
+
+        // Initialise the locks
+        if (optimisticReads) {
+            stampedLock = new StampedLock();
+            globalLock = stampedLock.asReadWriteLock();
+        } else {
+            stampedLock = null;
+            globalLock = new ReentrantReadWriteLock(true); //fairness enabled
+        }
+        r = globalLock.readLock();
+        w = globalLock.writeLock();
+
+        insertQueueDrainLock = new ReentrantLock(true); //fairness enabled
+
+        this.insertQueue = insertQueue;
+
+        // Initialise the sizeCheck semaphore - ensuring that it is fair and provies "size" number of permits
+        sizeCheck = new Semaphore(size, true);
+    }
+}
@@ -0,0 +1,172 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// An IntStore split into pages that can be frozen - used by UNSWArray.snapshotView
+// freeze() hands back the current pages in O(number of pages), and from then on the first write to each page copies it first, so the
+// frozen pages never change again and can be read without any lock while the array carries on being written
+// Pages are allocated from the store this was created from, so an off heap array stays off heap
+public class CopyOnWriteIntStore implements IntStore {
+    // === Class Attributes ===
+
+    // 4096 slots (16KB) per page
+    static final int PAGE_SHIFT = 12;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final IntStore[] pages;
+
+    // The epoch each page was created in - a page from an earlier epoch may be shared with a frozen view so must be copied before
+    // it is written. Written after the page itself so a thread that sees the current epoch here also sees the copied page
+    private final AtomicLongArray pageEpochs;
+
+    // Moved on by every freeze() - which only happens while the owning array's write lock is held
+    private volatile long epoch;
+
+    private final int length;
+
+    // An empty store of the kind pages are allocated as
+    private final IntStore template;
+
+    // Scratch buffer for copy() - only used by whoever holds the owning array's write lock
+    private final int[] scratch;
+
+    // === Private Helper Functions ===
+
+    private int pageLength(int page) {
+        return Math.min(PAGE_SIZE, length - (page << PAGE_SHIFT));
+    }
+
+    // Returns page "page" ready to be written - copying it first if a frozen view might still be reading it
+    // Every write to the store comes from the owning array's write lock (a delete only clears an occupancy bit) so there is only
+    // ever one thread here and the copy needs no lock of its own
+    private IntStore writable(int page) {
+        if (pageEpochs.get(page) != epoch) {
+            int pageLength = pageLength(page);
+            IntStore copy = template.allocate(pageLength);
+            copy.write(0, pages[page].toArray(), 0, pageLength);
+
+            pages[page] = copy;
+            pageEpochs.set(page, epoch);
+        }
+
+        return pages[page];
+    }
+
+    // === Public Methods ===
+
+    public int length() {
+        return length;
+    }
+
+    public int get(int index) {
+        return pages[index >>> PAGE_SHIFT].get(index & PAGE_MASK);
+    }
+
+    public void set(int index, int value) {
+        writable(index >>> PAGE_SHIFT).set(index & PAGE_MASK, value);
+    }
+
+    // Reads and writes are split across pages as needed
+    public void read(int index, int[] dst, int offset, int count) {
+        while (count > 0) {
+            int n = Math.min(count, PAGE_SIZE - (index & PAGE_MASK));
+            pages[index >>> PAGE_SHIFT].read(index & PAGE_MASK, dst, offset, n);
+
+            index += n;
+            offset += n;
+            count -= n;
+        }
+    }
+
+    public void write(int index, int[] src, int offset, int count) {
+        while (count > 0) {
+            int n = Math.min(count, PAGE_SIZE - (index & PAGE_MASK));
+            writable(index >>> PAGE_SHIFT).write(index & PAGE_MASK, src, offset, n);
+
+            index += n;
+            offset += n;
+            count -= n;
+        }
+    }
+
+    public void copy(int from, int to, int count) {
+        // Each block is read completely before it is written, and blocks are moved starting from the end the values are moving
+        // towards, so no value is overwritten before it has been read even when the ranges overlap
+        if (to > from) {
+            for (int end = count; end > 0; end -= PAGE_SIZE) {
+                int n = Math.min(PAGE_SIZE, end);
+                read(from + end - n, scratch, 0, n);
+                write(to + end - n, scratch, 0, n);
+            }
+        } else if (to < from) {
+            for (int start = 0; start < count; start += PAGE_SIZE) {
+                int n = Math.min(PAGE_SIZE, count - start);
+                read(from + start, scratch, 0, n);
+                write(to + start, scratch, 0, n);
+            }
+        }
+    }
+
+    public void fill(int from, int to, int value) {
+        while (from < to) {
+            int n = Math.min(to - from, PAGE_SIZE - (from & PAGE_MASK));
+            writable(from >>> PAGE_SHIFT).fill(from & PAGE_MASK, (from & PAGE_MASK) + n, value);
+            from += n;
+        }
+    }
+
+    public IntStore allocate(int length) {
+        return new CopyOnWriteIntStore(template, length);
+    }
+
+    public int[] toArray() {
+        int[] values = new int[length];
+        read(0, values, 0, length);
+        return values;
+    }
+
+    // Passes the trim on to each page with "liveFrom" made relative to the page - pages before it are all gaps
+    // Only pages already copied since the last freeze() are trimmed, since a page a frozen view still shares would have to be copied
+    // first (a copy is written in one go, so it starts out tightly packed anyway)
+    public void trim(int liveFrom) {
+        for (int page = 0; page < pages.length; page++) {
+            if (pageEpochs.get(page) == epoch) {
+                int start = page << PAGE_SHIFT;
+                pages[page].trim(Math.max(0, Math.min(pageLength(page), liveFrom - start)));
+            }
+        }
+    }
+
+    // The calling function must have acquired the owning array's write lock before using this function to ensure mutex
+    // Returns the pages as they are now - they will never be written again
+    public IntStore[] freeze() {
+        IntStore[] frozen = pages.clone();
+        epoch++;
+        return frozen;
+    }
+
+    // === Constructors ===
+
+    // A copy of everything in "store", paged
+    public CopyOnWriteIntStore(IntStore store) {
+        this(store.allocate(0), store.length());
+
+        for (int page = 0; page < pages.length; page++) {
+            int pageLength = pageLength(page);
+            store.read(page << PAGE_SHIFT, scratch, 0, pageLength);
+            pages[page].write(0, scratch, 0, pageLength);
+        }
+    }
+
+    // "length" slots (their contents are undefined until written) in pages allocated like "template"
+    public CopyOnWriteIntStore(IntStore template, int length) {
+        this.template = template;
+        this.length = length;
+        this.scratch = new int[PAGE_SIZE];
+
+        this.pages = new IntStore[(int) (((long) length + PAGE_SIZE - 1) >>> PAGE_SHIFT)];
+        for (int page = 0; page < pages.length; page++) {
+            pages[page] = template.allocate(pageLength(page));
+        }
+        this.pageEpochs = new AtomicLongArray(pages.length);
+    }
+}
@@ -0,0 +1,52 @@
+import java.util.Arrays;
+
+// The default IntStore - a plain int[] on the heap
+public class HeapIntStore implements IntStore {
+    // === Class Attributes ===
+
+    private final int[] values;
+
+    // === Public Methods ===
+
+    public int length() {
+        return values.length;
+    }
+
+    public int get(int index) {
+        return values[index];
+    }
+
+    public void set(int index, int value) {
+        values[index] = value;
+    }
+
+    public void read(int index, int[] dst, int offset, int count) {
+        System.arraycopy(values, index, dst, offset, count);
+    }
+
+    public void write(int index, int[] src, int offset, int count) {
+        System.arraycopy(src, offset, values, index, count);
+    }
+
+    public void copy(int from, int to, int count) {
+        System.arraycopy(values, from, values, to, count);
+    }
+
+    public void fill(int from, int to, int value) {
+        Arrays.fill(values, from, to, value);
+    }
+
+    public IntStore allocate(int length) {
+        return new HeapIntStore(length);
+    }
+
+    public int[] toArray() {
+        return values.clone();
+    }
+
+    // === Constructors ===
+
+    public HeapIntStore(int length) {
+        this.values = new int[length];
+    }
+}
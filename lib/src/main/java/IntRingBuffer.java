@@ -0,0 +1,37 @@
+// The insert queue of UNSWArray - a RingBuffer of primitive ints
+// Keys are put as longs (AbstractUNSWArray queues every key type the same way) but UNSWArray keys always fit in an int
+public class IntRingBuffer extends RingBuffer {
+    // === Class Attributes ===
+
+    private final int[] buffer;
+
+    // === Value Storage ===
+
+    void store(int index, long x) {
+        buffer[index] = (int) x;
+    }
+
+    // === Public Methods ===
+
+    // Move up to "max" published values into "dst" and return how many were moved
+    // Must only be called by the single consumer
+    public int drainTo(int[] dst, int max) {
+        int count = this.published(max);
+        int index = this.headIndex();
+
+        // the values may wrap around the end of the buffer
+        int first = Math.min(count, length - index);
+        System.arraycopy(buffer, index, dst, 0, first);
+        System.arraycopy(buffer, 0, dst, first, count - first);
+
+        this.consumed(count);
+        return count;
+    }
+
+    // === Constructors ===
+
+    public IntRingBuffer(int capacity) {
+        super(capacity);
+        buffer = new int[length];
+    }
+}
@@ -0,0 +1,34 @@
+// The slots an UNSWArray keeps its values in - lets the same sorted-with-tombstones logic run over an int[] on the heap,
+// over memory outside the heap or over bit-packed blocks (see HeapIntStore, OffHeapIntStore and PackedIntStore)
+// Stores do no locking of their own - UNSWArray only writes to them while holding its global write lock
+public interface IntStore {
+    // Number of slots
+    int length();
+
+    int get(int index);
+
+    void set(int index, int value);
+
+    // Copies "count" slots starting at "index" into "dst" starting at "offset"
+    void read(int index, int[] dst, int offset, int count);
+
+    // Copies "count" values from "src" starting at "offset" into the slots starting at "index"
+    void write(int index, int[] src, int offset, int count);
+
+    // Moves "count" values starting at "from" so they start at "to" - like System.arraycopy the two ranges may overlap
+    void copy(int from, int to, int count);
+
+    // Sets every slot from "from" (inclusive) to "to" (exclusive) to "value"
+    void fill(int from, int to, int value);
+
+    // Creates a new store of the same kind with "length" slots (their contents are undefined until written)
+    IntStore allocate(int length);
+
+    // Copies every slot into a new int[]
+    int[] toArray();
+
+    // Called once every live value has been packed at the end of the store, from "liveFrom" on - the slots before it are gaps whose
+    // values don't matter. A store may use this to give back memory (see PackedIntStore), the rest have nothing to do
+    default void trim(int liveFrom) {
+    }
+}
@@ -0,0 +1,80 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// A lock free histogram of non-negative long values (eg nanoseconds or batch sizes) using power of two buckets
+// Bucket i counts values in [2^(i-1), 2^i) (bucket 0 counts zeros) so percentiles are only accurate to within a factor of two,
+// which is plenty for alerting and keeps recording to a couple of atomic adds
+public class LogHistogram {
+    // === Class Attributes ===
+
+    private final AtomicLongArray buckets = new AtomicLongArray(65);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    // keeps the largest value even when recorders race - a plain check then set could overwrite a larger value with a smaller one
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    // === Public Methods ===
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+        count.increment();
+        sum.add(value);
+
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    // Upper bound of the bucket holding the given percentile (0 - 100) - never more than max
+    public long getPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < 65; i++) {
+            total += buckets.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+
+        for (int i = 0; i < 65; i++) {
+            seen += buckets.get(i);
+            if (seen >= Math.max(1, rank)) {
+                long upper = i == 0 ? 0 : (i == 64 ? Long.MAX_VALUE : (1L << i) - 1);
+                return Math.min(upper, max.get());
+            }
+        }
+
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < 65; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+}
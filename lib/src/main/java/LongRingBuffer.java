@@ -0,0 +1,36 @@
+// The insert queue of LongUNSWArray - a RingBuffer of primitive longs
+public class LongRingBuffer extends RingBuffer {
+    // === Class Attributes ===
+
+    private final long[] buffer;
+
+    // === Value Storage ===
+
+    void store(int index, long x) {
+        buffer[index] = x;
+    }
+
+    // === Public Methods ===
+
+    // Move up to "max" published values into "dst" and return how many were moved
+    // Must only be called by the single consumer
+    public int drainTo(long[] dst, int max) {
+        int count = this.published(max);
+        int index = this.headIndex();
+
+        // the values may wrap around the end of the buffer
+        int first = Math.min(count, length - index);
+        System.arraycopy(buffer, index, dst, 0, first);
+        System.arraycopy(buffer, 0, dst, first, count - first);
+
+        this.consumed(count);
+        return count;
+    }
+
+    // === Constructors ===
+
+    public LongRingBuffer(int capacity) {
+        super(capacity);
+        buffer = new long[length];
+    }
+}
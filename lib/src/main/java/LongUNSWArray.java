@@ -0,0 +1,532 @@
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+// The same concurrent sorted set as UNSWArray but for 64-bit keys - insert queue, group commit drain, cleanup, background compaction,
+// auto grow and metrics are all shared with it (see AbstractUNSWArray), only the array of keys and the searches over it are long here
+// Keys are kept in a plain long[] so nothing is boxed, unlike a ConcurrentSkipListSet<Long> which allocates a Long and a node per key
+// Covers the core of the UNSWArray API - there is no off-heap store, snapshot or write ahead log for long keys
+public class LongUNSWArray extends AbstractUNSWArray {
+    // === Class Attributes ===
+
+    // The array itself - which slots are live is kept by the occupancy bitmap (see AbstractUNSWArray.occupied)
+    private long[] array;
+
+    // The insert queue (also the engine's insertQueue) and the buffer it is drained into - only touched by the thread holding
+    // insertQueueDrainLock
+    private final LongRingBuffer queue;
+    private final long[] drained;
+
+    // === Key Storage ===
+
+    int length() {
+        return array.length;
+    }
+
+    void moveSlot(int from, int to) {
+        array[to] = array[from];
+    }
+
+    void reallocate(int newCapacity) {
+        long[] resized = new long[newCapacity];
+
+        // copy the live values across to the end of the new array
+        int editIndex = newCapacity - 1;
+        for (int readIndex = occupied.prevSetBit(array.length - 1); readIndex != -1; readIndex = occupied.prevSetBit(readIndex - 1)) {
+            resized[editIndex] = array[readIndex];
+            editIndex--;
+        }
+
+        array = resized;
+    }
+
+    // === Insert Queue Draining ===
+
+    int drainKeys() {
+        return queue.drainTo(drained, drained.length);
+    }
+
+    int sortDrainedKeys(int count) {
+        return sortAndDedupe(drained, count);
+    }
+
+    int applyDrainedKeys(int count) {
+        return this.applyBatch(drained, count);
+    }
+
+    // === Private Helper Functions ===
+
+    // Sorts the first "count" values and removes duplicates in place - returns how many distinct values are left at the front
+    private static int sortAndDedupe(long[] values, int count) {
+        Arrays.sort(values, 0, count);
+
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || values[distinct - 1] != values[i]) {
+                values[distinct] = values[i];
+                distinct++;
+            }
+        }
+
+        return distinct;
+    }
+
+    // The calling function must have acquired the global write lock before using this function to ensure mutex
+    // Inserts a value into the nearest gap and returns how many values had to be shifted (or -1 if the array is full) - see UNSWArray.insertIntoArray
+    private int insertIntoArray(long val) {
+        int pos = findInsertPosition(val);
+
+        // search outwards for the nearest gap - preferring the left so values stay packed towards the end of the array
+        int left = pos - 1;
+        int right = pos;
+
+        while (left >= 0 || right < array.length) {
+            if (left >= 0 && !occupied.get(left)) {
+                // shift everything between the gap and pos one place left
+                System.arraycopy(array, left + 1, array, left, pos - 1 - left);
+                array[pos - 1] = val;
+                occupied.set(left);
+                return pos - 1 - left;
+            }
+
+            if (right < array.length && !occupied.get(right)) {
+                // shift everything between pos and the gap one place right
+                System.arraycopy(array, pos, array, pos + 1, right - pos);
+                array[pos] = val;
+                occupied.set(right);
+                return right - pos;
+            }
+
+            left--;
+            right++;
+        }
+
+        // no room - sizeCheck should prevent us ever getting here
+        return -1;
+    }
+
+    // The calling function must have acquired the global write lock before using this function to ensure mutex
+    // Applies the sorted, duplicate free values in "values" (up to "count") to the array and returns how many were actually added
+    // One at a time while that is cheap, then a single merge for the rest of the batch - see UNSWArray.applyBatch
+    private int applyBatch(long[] values, int count) {
+        int added = 0;
+        int budget = array.length;
+
+        for (int i = 0; i < count; i++) {
+            if (budget < 0) {
+                return added + this.mergeIntoArray(values, i, count);
+            }
+
+            // do not insert duplicate
+            if (findIndex(values[i]) != -1) {
+                continue;
+            }
+
+            int shifted = this.insertIntoArray(values[i]);
+            if (shifted != -1) {
+                added++;
+                budget -= shifted + 1;
+            }
+        }
+
+        return added;
+    }
+
+    // The calling function should have acquired the global read or write lock before calling this function
+    // Counts how many of the sorted, duplicate free values in "values" (up to "count") are not in the array - O(n + k)
+    private int countMissing(long[] values, int count) {
+        int missing = 0;
+        int readIndex = occupied.nextSetBit(0);
+
+        for (int valIndex = 0; valIndex < count; valIndex++) {
+            // skip all gaps and anything smaller than the value we're looking for
+            while (readIndex != -1 && array[readIndex] < values[valIndex]) {
+                readIndex = occupied.nextSetBit(readIndex + 1);
+            }
+
+            if (readIndex == -1 || array[readIndex] != values[valIndex]) {
+                missing++;
+            }
+        }
+
+        return missing;
+    }
+
+    // The calling function must have acquired the global write lock before using this function to ensure mutex
+    // Merges the sorted, duplicate free values in "values" (from index "from" up to "to") into the array and returns how many were actually added
+    // Packs the live values to the left and merges back from the right - see UNSWArray.mergeIntoArray
+    private int mergeIntoArray(long[] values, int from, int to) {
+        // pack all live values to the left
+        int live = 0;
+        for (int readIndex = occupied.nextSetBit(0); readIndex != -1; readIndex = occupied.nextSetBit(readIndex + 1)) {
+            array[live] = array[readIndex];
+            live++;
+        }
+
+        // merge from the right - the write index can never overtake the read index as long as the values fit (sizeCheck ensures this)
+        int editIndex = array.length - 1;
+        int readIndex = live - 1;
+        int valIndex = to - 1;
+        int added = 0;
+
+        while (valIndex >= from) {
+            if (readIndex >= 0 && array[readIndex] >= values[valIndex]) {
+                // do not insert duplicate
+                if (array[readIndex] == values[valIndex]) {
+                    valIndex--;
+                }
+                array[editIndex] = array[readIndex];
+                readIndex--;
+            } else {
+                array[editIndex] = values[valIndex];
+                valIndex--;
+                added++;
+            }
+            editIndex--;
+        }
+
+        // shift the remaining (smallest) live values across
+        while (readIndex >= 0) {
+            array[editIndex] = array[readIndex];
+            editIndex--;
+            readIndex--;
+        }
+
+        // everything at the beginning of the array is now a gap
+        occupied.clearRange(0, editIndex + 1);
+        occupied.setRange(editIndex + 1, array.length);
+
+        return added;
+    }
+
+    // The calling function should have acquired the global read or write lock before calling this function
+    // Binary search for the position "val" belongs at - returns the index of the first live value larger than "val" (or array.length)
+    private int findInsertPosition(long val) {
+        int low = 0;
+        int high = array.length;
+
+        while (low < high) {
+            int mid = low + (high - low) / 2;
+
+            // skip all gaps - forwards first and if everything up to high is a gap then backwards
+            int live = occupied.nextSetBit(mid);
+
+            if (live == -1 || live >= high) {
+                live = occupied.prevSetBit(mid - 1);
+
+                // everything between low and high is a gap
+                if (live < low) {
+                    return high;
+                }
+            }
+
+            if (array[live] > val) {
+                high = live;
+            } else {
+                low = live + 1;
+            }
+        }
+
+        return high;
+    }
+
+    // The calling function should have acquired the global read or write lock before calling this function
+    // Returns an index at or before the first live value that is at least "lo" (and after every live value smaller than "lo")
+    private int rangeStart(long lo) {
+        if (lo == Long.MIN_VALUE) {
+            int first = occupied.nextSetBit(0);
+            return first == -1 ? array.length : first;
+        }
+        return findInsertPosition(lo - 1);
+    }
+
+    // The calling function should IDEALLY (but not necessarily) have obtained the global read lock before calling this function
+    // Finds the index of the value "x" in the array or returns -1 if not found
+    // It may be called without any lock in optimistic read mode so it only reads the array fields once and never leaves [low, high]
+    private int findIndex(long x) {
+        long[] array = this.array;
+        OccupancyBitmap occupied = this.occupied;
+        int low = 0;
+        int high = array.length - 1;
+
+        while (low <= high) {
+            int start = low + (high - low) / 2;
+
+            // skip all gaps - the occupancy bitmap takes us straight to the next live value
+            int mid = occupied.nextSetBit(start);
+
+            // everything from start up to high is a gap so keep searching to the left of it
+            if (mid == -1 || mid > high) {
+                high = start - 1;
+                continue;
+            }
+
+            long value = array[mid];
+
+            // return index of element
+            if (value == x) {
+                return mid;
+
+            } else if (value < x) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        // if element does not exist
+        return -1;
+    }
+
+    // === Public Methods ===
+
+    // Insert a value into the array "atomically" - see UNSWArray.insert
+    public int insert(long x) {
+        return this.insertKey(x);
+    }
+
+    // Insert a value, giving up if there is no room for it within "timeout" - see UNSWArray.tryInsert
+    public int tryInsert(long x, long timeout, TimeUnit unit) {
+        return this.tryInsertKey(x, timeout, unit);
+    }
+
+    // Insert a value without waiting for room or for another thread to apply it - see UNSWArray.insertAsync
+    public CompletableFuture<Boolean> insertAsync(long x) {
+        return this.insertKeyAsync(x);
+    }
+
+    // Insert a batch of values "atomically" in a single write lock acquisition - see UNSWArray.insertAll
+    // Returns the number of values actually added or -1 if interrupted or the batch can never fit
+    public int insertAll(long[] values) {
+        // sort a copy of the batch and remove duplicates in place
+        long[] batch = Arrays.copyOf(values, values.length);
+        int count = sortAndDedupe(batch, batch.length);
+
+        // Permits are only needed for values that are not already in the array - wait for any we are short of outside the lock
+        int reserved = 0;
+        int added;
+
+        try {
+            while (true) {
+                int needed;
+
+                long lockedAt = this.lockWrite();
+
+                // Try / finally block for safety
+                try {
+                    needed = this.countMissing(batch, count);
+
+                    // there will never be enough room for this batch
+                    if (needed > Math.max(array.length, maxCapacity)) {
+                        sizeCheck.release(reserved);
+                        return -1;
+                    }
+
+                    if (needed <= reserved || sizeCheck.tryAcquire(needed - reserved)) {
+                        reserved = Math.max(reserved, needed);
+                        added = this.mergeIntoArray(batch, 0, count);
+                        break;
+                    }
+                } finally {
+                    this.unlockWrite(lockedAt);
+                }
+
+                // wait until there is room in the array - deletion operations will release permits back to the semaphore
+                this.acquirePermits(needed - reserved);
+                reserved = needed;
+            }
+        } catch (InterruptedException e) {
+            // Error handling - hand back permits
+            sizeCheck.release(reserved);
+            return -1;
+        }
+
+        // hand back any permits we didn't end up using
+        sizeCheck.release(reserved - added);
+        liveCount.addAndGet(added);
+
+        return added;
+    }
+
+    // Delete a value from the array "atomically"
+    public void delete(long x) {
+        // acquire global read lock as deletes can occur at the same time as reads and membership checks but not writes or cleanups
+        r.lock();
+
+        // Try / finally block for safety
+        try {
+            int index = findIndex(x);
+            // if it exists clear its occupancy bit to "delete" it - exactly one of two deletes of the same value clears it (see UNSWArray.delete)
+            if (index != -1 && occupied.clear(index)) {
+                liveCount.decrementAndGet();
+
+                // IMPORTANT - we release a permit on the sizeCheck semaphore to unblock any waiting processes that might be waiting to insert a value into a full array
+                sizeCheck.release();
+            }
+        } finally {
+            r.unlock();
+        }
+    }
+
+    // Deletes every value from "lo" to "hi" (both inclusive) and returns how many there were
+    // Just clears the occupancy bits of the slots in between under the write lock
+    public int deleteRange(long lo, long hi) {
+        if (lo > hi) {
+            return 0;
+        }
+
+        int removed;
+
+        long lockedAt = this.lockWrite();
+
+        // Try / finally block for safety
+        try {
+            int from = this.rangeStart(lo);
+            int to = findInsertPosition(hi);
+
+            removed = occupied.cardinality(from, to);
+            occupied.clearRange(from, to);
+        } finally {
+            this.unlockWrite(lockedAt);
+        }
+
+        liveCount.addAndGet(-removed);
+        sizeCheck.release(removed);
+
+        return removed;
+    }
+
+    // Public facing set membership function
+    // Effectively wraps findIndex and returns true if an index is returned and false if -1 is returned
+    public boolean member(long x) {
+        // In optimistic read mode first try without any lock - falling back to the read lock if a writer got in while we were searching
+        if (stampedLock != null) {
+            long stamp = stampedLock.tryOptimisticRead();
+
+            if (stamp != 0) {
+                int index = findIndex(x);
+
+                if (stampedLock.validate(stamp)) {
+                    return index != -1;
+                }
+            }
+        }
+
+        // First acquire global read lock
+        r.lock();
+
+        // Try / finally block for safety
+        try {
+            return findIndex(x) != -1;
+        } finally {
+            r.unlock();
+        }
+    }
+
+    // Number of live values from "lo" to "hi" (both inclusive)
+    public int rangeCount(long lo, long hi) {
+        if (lo > hi) {
+            return 0;
+        }
+
+        // First acquire global read lock
+        r.lock();
+
+        // Try / finally block for safety
+        try {
+            return occupied.cardinality(this.rangeStart(lo), findInsertPosition(hi));
+        } finally {
+            r.unlock();
+        }
+    }
+
+    // Calls "consumer" with every live value from "lo" to "hi" (both inclusive) in sorted order
+    // The read lock is held the whole time so "consumer" must not insert into or clean up this array (it would deadlock)
+    public void forEachInRange(long lo, long hi, LongConsumer consumer) {
+        if (lo > hi) {
+            return;
+        }
+
+        // First acquire global read lock
+        r.lock();
+
+        // Try / finally block for safety
+        try {
+            for (int i = occupied.nextSetBit(this.rangeStart(lo)); i != -1; i = occupied.nextSetBit(i + 1)) {
+                long value = array[i];
+
+                if (value > hi) {
+                    break;
+                }
+                consumer.accept(value);
+            }
+        } finally {
+            r.unlock();
+        }
+    }
+
+    // Public getter for testing
+    // A copy of the array with every gap shown as -1 (like UNSWArray.getArray)
+    public long[] getArray() {
+        // First acquire global read lock
+        r.lock();
+
+        // Try / finally block for safety
+        try {
+            long[] copy = array.clone();
+
+            for (int i = 0; i < copy.length; i++) {
+                if (!occupied.get(i)) {
+                    copy[i] = -1;
+                }
+            }
+            return copy;
+        } finally {
+            r.unlock();
+        }
+    }
+
+    // Public facing print function
+    // Prints out the set of elements in sorted order.
+    public void print_sorted() {
+        StringBuilder sb = new StringBuilder(" ");
+
+        this.forEachInRange(Long.MIN_VALUE, Long.MAX_VALUE, value -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(value);
+        });
+
+        System.out.print(sb);
+    }
+
+    // === Constructors ===
+
+    public LongUNSWArray(int size) {
+        this(size, 100); //allow for a maximum of 100 insert operations to be queued at one time by default
+    }
+
+    // "queueCapacity" is the maximum number of insert operations that can be queued at one time before insert blocks
+    public LongUNSWArray(int size, int queueCapacity) {
+        this(size, queueCapacity, false);
+    }
+
+    // "optimisticReads" switches the global lock to a StampedLock so member() can read without locking (the lock is then not fair)
+    public LongUNSWArray(int size, int queueCapacity, boolean optimisticReads) {
+        this(size, new LongRingBuffer(queueCapacity), optimisticReads);
+    }
+
+    private LongUNSWArray(int size, LongRingBuffer queue, boolean optimisticReads) {
+        super(size, queue, optimisticReads);
+
+        this.array = new long[size];
+        this.queue = queue;
+        this.drained = new long[queue.capacity()];
+    }
+
+    // This is for testing purposes only at this stage
+    public void printArray() {
+        System.out.println(Arrays.toString(this.getArray()));
+    }
+}
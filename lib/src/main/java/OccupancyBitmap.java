@@ -0,0 +1,272 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// Summary of which slots of an UNSWArray hold a live value - this is the only record of it, the values themselves can be anything
+// (including -1) so a slot whose bit is clear just holds whatever was last written there
+// Level 0 has one bit per slot, and every level above has one bit per word of the level below which is set while that word is non-zero
+// So finding the next / previous live slot only ever looks at one word per level - O(log64 n) no matter how many -1 values there are
+//
+// set / setRange / clearRange must only be called while holding the global write lock
+// clear may be called while holding just the read lock (deletes run concurrently) so it updates words atomically, and says whether
+// it was the one that cleared the bit - that is what decides which of two deletes of the same value wins
+// Reads have acquire ordering so a reader on another core sees a clear that has already happened
+// nextSetBit / prevSetBit never fail or loop forever even when racing with writers (optimistic reads) - they may just be out of date
+public class OccupancyBitmap {
+    // === Class Attributes ===
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // levels[0] is the per slot bitmap, levels[levels.length - 1] always has exactly one word
+    private final long[][] levels;
+    private final int size;
+
+    // === Private Helper Functions ===
+
+    private static int wordCount(long bits) {
+        return (int) ((bits + 63) >>> 6);
+    }
+
+    // Recomputes the bits in the level above "level" for words "fromWord" to "toWord" (inclusive) and carries on up the levels
+    private void updateSummary(int level, int fromWord, int toWord) {
+        while (level < levels.length - 1) {
+            long[] words = levels[level];
+            long[] above = levels[level + 1];
+
+            for (int w = fromWord; w <= toWord; w++) {
+                long bit = 1L << (w & 63);
+                if (words[w] != 0) {
+                    above[w >>> 6] |= bit;
+                } else {
+                    above[w >>> 6] &= ~bit;
+                }
+            }
+
+            fromWord >>>= 6;
+            toWord >>>= 6;
+            level++;
+        }
+    }
+
+    // === Public Methods ===
+
+    public void set(int index) {
+        long index64 = index;
+
+        // set the bit on every level - stop as soon as a word was already non-zero since the levels above already know about it
+        for (int level = 0; level < levels.length; level++) {
+            int w = (int) (index64 >>> 6);
+            long before = levels[level][w];
+            levels[level][w] = before | (1L << (index64 & 63));
+
+            if (before != 0) {
+                return;
+            }
+            index64 = w;
+        }
+    }
+
+    // Returns true if the bit was set (and this call cleared it)
+    public boolean clear(int index) {
+        long index64 = index;
+
+        // clear the bit on every level while the word it was in becomes zero
+        // getAndBitwiseAnd means that when two deletes empty the same word exactly one of them sees it become zero
+        for (int level = 0; level < levels.length; level++) {
+            int w = (int) (index64 >>> 6);
+            long bit = 1L << (index64 & 63);
+            long before = (long) WORDS.getAndBitwiseAnd(levels[level], w, ~bit);
+
+            if (level == 0 && (before & bit) == 0) {
+                return false;
+            }
+            if ((before & ~bit) != 0 || before == 0) {
+                return true;
+            }
+            index64 = w;
+        }
+
+        return true;
+    }
+
+    // Sets every bit from "from" (inclusive) to "to" (exclusive)
+    public void setRange(int from, int to) {
+        updateRange(from, to, true);
+    }
+
+    // Clears every bit from "from" (inclusive) to "to" (exclusive)
+    public void clearRange(int from, int to) {
+        updateRange(from, to, false);
+    }
+
+    private void updateRange(int from, int to, boolean value) {
+        if (from >= to) {
+            return;
+        }
+
+        long[] words = levels[0];
+        int fromWord = from >>> 6;
+        int toWord = (to - 1) >>> 6;
+
+        for (int w = fromWord; w <= toWord; w++) {
+            // bits of this word inside the range
+            long mask = -1L;
+            if (w == fromWord) {
+                mask &= -1L << (from & 63);
+            }
+            if (w == toWord) {
+                mask &= -1L >>> (63 - ((to - 1) & 63));
+            }
+
+            if (value) {
+                words[w] |= mask;
+            } else {
+                words[w] &= ~mask;
+            }
+        }
+
+        updateSummary(0, fromWord, toWord);
+    }
+
+    public boolean get(int index) {
+        return (levels[0][index >>> 6] & (1L << (index & 63))) != 0;
+    }
+
+    // Returns the first set bit at or after "from" or -1 if there is none
+    public int nextSetBit(int from) {
+        if (from < 0) {
+            from = 0;
+        }
+        if (from >= size) {
+            return -1;
+        }
+
+        int level = 0;
+        long index = from;
+
+        while (true) {
+            long[] words = levels[level];
+            int w = (int) (index >>> 6);
+
+            if (w >= words.length) {
+                return -1;
+            }
+
+            long word = (long) WORDS.getAcquire(words, w) & (-1L << (index & 63));
+
+            if (word == 0) {
+                // nothing left in this word - carry on from the next word, which is the next bit of the level above
+                if (level == levels.length - 1) {
+                    return -1;
+                }
+                index = w + 1;
+                level++;
+                continue;
+            }
+
+            index = ((long) w << 6) + Long.numberOfTrailingZeros(word);
+
+            if (level == 0) {
+                return (int) index;
+            }
+
+            // go down into the word that bit stands for (if a racing clear has emptied it we'll just climb back out)
+            level--;
+            index <<= 6;
+        }
+    }
+
+    // Returns the last set bit at or before "from" or -1 if there is none
+    public int prevSetBit(int from) {
+        if (from >= size) {
+            from = size - 1;
+        }
+        if (from < 0) {
+            return -1;
+        }
+
+        int level = 0;
+        long index = from;
+
+        while (true) {
+            long[] words = levels[level];
+            int w = (int) (index >>> 6);
+            long word = (long) WORDS.getAcquire(words, w) & (-1L >>> (63 - (index & 63)));
+
+            if (word == 0) {
+                // nothing before this in the word - carry on from the previous word, which is the previous bit of the level above
+                if (w == 0 || level == levels.length - 1) {
+                    return -1;
+                }
+                index = w - 1;
+                level++;
+                continue;
+            }
+
+            index = ((long) w << 6) + 63 - Long.numberOfLeadingZeros(word);
+
+            if (level == 0) {
+                return (int) index;
+            }
+
+            // go down to the last bit of the word that bit stands for
+            level--;
+            index = (index << 6) + 63;
+        }
+    }
+
+    // Number of set bits from "from" (inclusive) to "to" (exclusive)
+    public int cardinality(int from, int to) {
+        if (from >= to) {
+            return 0;
+        }
+
+        long[] words = levels[0];
+        int fromWord = from >>> 6;
+        int toWord = (to - 1) >>> 6;
+        int count = 0;
+
+        for (int w = fromWord; w <= toWord; w++) {
+            // bits of this word inside the range
+            long mask = -1L;
+            if (w == fromWord) {
+                mask &= -1L << (from & 63);
+            }
+            if (w == toWord) {
+                mask &= -1L >>> (63 - ((to - 1) & 63));
+            }
+
+            count += Long.bitCount((long) WORDS.getOpaque(words, w) & mask);
+        }
+
+        return count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // A copy of the per slot bits (bit i of word i / 64 for slot i) - used to freeze them for an UNSWArrayView
+    public long[] copyWords() {
+        return levels[0].clone();
+    }
+
+    // === Constructors ===
+
+    // Creates a bitmap for "size" slots with every bit cleared
+    public OccupancyBitmap(int size) {
+        this.size = size;
+
+        // work out how many levels are needed until one word covers everything
+        int count = 1;
+        for (long bits = size; wordCount(bits) > 1; bits = wordCount(bits)) {
+            count++;
+        }
+
+        levels = new long[count][];
+        long bits = size;
+        for (int level = 0; level < count; level++) {
+            levels[level] = new long[Math.max(1, wordCount(bits))];
+            bits = wordCount(bits);
+        }
+    }
+}
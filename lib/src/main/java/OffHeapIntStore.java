@@ -0,0 +1,125 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+// An IntStore kept in direct ByteBuffers outside the Java heap - so a set of hundreds of millions of values adds nothing for the
+// garbage collector to scan or copy
+// A single direct buffer can hold at most 2GB so the slots are split across chunks of CHUNK_SIZE ints, which allows up to
+// Integer.MAX_VALUE slots (8GB) in total
+// The memory is handed back to the operating system when the store is garbage collected, like any other direct buffer
+public class OffHeapIntStore implements IntStore {
+    // === Class Attributes ===
+
+    // 2^26 ints (256MB) per chunk
+    private static final int CHUNK_SHIFT = 26;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Number of values copy() moves at a time through its scratch buffer
+    private static final int COPY_BLOCK = 4096;
+
+    private final IntBuffer[] chunks;
+    private final int length;
+
+    // Scratch buffer for copy() - only used by whoever holds the owning array's write lock
+    private final int[] scratch;
+
+    // === Public Methods ===
+
+    public int length() {
+        return length;
+    }
+
+    public int get(int index) {
+        return chunks[index >>> CHUNK_SHIFT].get(index & CHUNK_MASK);
+    }
+
+    public void set(int index, int value) {
+        chunks[index >>> CHUNK_SHIFT].put(index & CHUNK_MASK, value);
+    }
+
+    // Reads and writes are split across chunks as needed
+    public void read(int index, int[] dst, int offset, int count) {
+        while (count > 0) {
+            IntBuffer chunk = chunks[index >>> CHUNK_SHIFT].duplicate();
+            int position = index & CHUNK_MASK;
+            int n = Math.min(count, CHUNK_SIZE - position);
+
+            chunk.position(position);
+            chunk.get(dst, offset, n);
+
+            index += n;
+            offset += n;
+            count -= n;
+        }
+    }
+
+    public void write(int index, int[] src, int offset, int count) {
+        while (count > 0) {
+            IntBuffer chunk = chunks[index >>> CHUNK_SHIFT].duplicate();
+            int position = index & CHUNK_MASK;
+            int n = Math.min(count, CHUNK_SIZE - position);
+
+            chunk.position(position);
+            chunk.put(src, offset, n);
+
+            index += n;
+            offset += n;
+            count -= n;
+        }
+    }
+
+    public void copy(int from, int to, int count) {
+        // Each block is read completely before it is written, and blocks are moved starting from the end the values are moving
+        // towards, so no value is overwritten before it has been read even when the ranges overlap
+        if (to > from) {
+            for (int end = count; end > 0; end -= COPY_BLOCK) {
+                int n = Math.min(COPY_BLOCK, end);
+                read(from + end - n, scratch, 0, n);
+                write(to + end - n, scratch, 0, n);
+            }
+        } else if (to < from) {
+            for (int start = 0; start < count; start += COPY_BLOCK) {
+                int n = Math.min(COPY_BLOCK, count - start);
+                read(from + start, scratch, 0, n);
+                write(to + start, scratch, 0, n);
+            }
+        }
+    }
+
+    public void fill(int from, int to, int value) {
+        for (int i = from; i < to; i++) {
+            chunks[i >>> CHUNK_SHIFT].put(i & CHUNK_MASK, value);
+        }
+    }
+
+    public IntStore allocate(int length) {
+        return new OffHeapIntStore(length);
+    }
+
+    public int[] toArray() {
+        int[] values = new int[length];
+        read(0, values, 0, length);
+        return values;
+    }
+
+    // === Constructors ===
+
+    public OffHeapIntStore(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("length must not be negative: " + length);
+        }
+
+        this.length = length;
+        this.scratch = new int[COPY_BLOCK];
+
+        // every chunk is full size except (possibly) the last one
+        int chunkCount = (int) (((long) length + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+        chunks = new IntBuffer[chunkCount];
+
+        for (int c = 0; c < chunkCount; c++) {
+            int ints = (int) Math.min(CHUNK_SIZE, (long) length - ((long) c << CHUNK_SHIFT));
+            chunks[c] = ByteBuffer.allocateDirect(ints * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+    }
+}
@@ -0,0 +1,329 @@
+import java.util.Arrays;
+
+// An IntStore that bit-packs its slots - for sets of dense keys (eg sorted IDs) where most of the bits of every int are wasted
+// The slots are split into blocks of BLOCK_SIZE, each stored frame of reference style: every slot is packed as its distance above a
+// straight line (base + slope * slot) into just as many bits as the largest distance in the block needs (its width)
+// For sorted keys the line follows the keys closely so the distances only have to cover how unevenly they are spaced - a flat line
+// (slope 0) is used instead whenever that packs smaller
+// Any one slot can still be read on its own in O(1) - from one or two words - so UNSWArray's binary searches read single values straight
+// from the packed words and never decode a whole block. The block headers (base, slope and width) are the index into the words
+// A write that doesn't fit its block re-packs just that block at the new width (see repack), and trim() re-packs everything tightly
+//
+// Like the other stores there is no locking - UNSWArray only writes while holding its global write lock
+// A block is replaced by a new long[] whenever its header changes, so a reader without a lock (optimistic reads) never pairs a width
+// with the wrong words - it may read a value that is being written, which validating the stamp takes care of
+public class PackedIntStore implements IntStore {
+    // === Class Attributes ===
+
+    // 128 slots per block
+    static final int BLOCK_SHIFT = 7;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    // Each block is a single long[] - a header of the base and then slope and width together (slope << 6 | width), followed by
+    // 2 * width words of packed slots. Keeping the header in the same array saves an object per block
+    private static final int HEADER = 2;
+
+    // null until a slot in the block is first written (every slot in it reads as 0 until then)
+    private final long[][] blocks;
+    private final int length;
+
+    // Scratch buffer for repack, write and trim - only used by whoever holds the owning array's write lock
+    private final int[] scratch;
+
+    // === Private Helper Functions ===
+
+    // Largest distance that fits in "width" bits
+    private static long maxOffset(int width) {
+        return (1L << width) - 1;
+    }
+
+    // Number of bits needed for a distance of "offset"
+    private static int widthFor(long offset) {
+        return 64 - Long.numberOfLeadingZeros(offset);
+    }
+
+    private static long base(long[] block) {
+        return block[0];
+    }
+
+    private static long slope(long[] block) {
+        return block[1] >> 6;
+    }
+
+    private static int width(long[] block) {
+        return (int) (block[1] & 63);
+    }
+
+    private static long[] newBlock(long base, long slope, int width) {
+        long[] block = new long[HEADER + 2 * width];
+        block[0] = base;
+        block[1] = (slope << 6) | width;
+        return block;
+    }
+
+    private static long unpack(long[] block, int width, int slot) {
+        if (width == 0) {
+            return 0;
+        }
+
+        long bit = (long) slot * width;
+        int word = HEADER + (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+
+        long offset = block[word] >>> shift;
+        // the value carries on into the next word
+        if (shift + width > 64) {
+            offset |= block[word + 1] << (64 - shift);
+        }
+        return offset & maxOffset(width);
+    }
+
+    private static void pack(long[] block, int width, int slot, long offset) {
+        if (width == 0) {
+            return;
+        }
+
+        long bit = (long) slot * width;
+        int word = HEADER + (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+
+        block[word] = (block[word] & ~(maxOffset(width) << shift)) | (offset << shift);
+        if (shift + width > 64) {
+            int spill = 64 - shift;
+            block[word + 1] = (block[word + 1] & ~(maxOffset(width) >>> spill)) | (offset >>> spill);
+        }
+    }
+
+    private static int valueAt(long[] block, int slot) {
+        return (int) (base(block) + slope(block) * slot + unpack(block, width(block), slot));
+    }
+
+    // Packs the BLOCK_SIZE values in "values" into a new block as tightly as they allow
+    // If "low" the line is put as far below the values as the width allows rather than touching the lowest one - leaving room for
+    // writes of smaller values, since a run of writes in descending order (filling an array from the end) would otherwise re-pack on
+    // every write
+    private static long[] encode(int[] values, boolean low) {
+        // a line through the first and last values, and a flat one
+        long slope = ((long) values[BLOCK_SIZE - 1] - values[0]) / (BLOCK_SIZE - 1);
+        long lineMin = Long.MAX_VALUE;
+        long lineMax = Long.MIN_VALUE;
+        int flatMin = values[0];
+        int flatMax = values[0];
+
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            long distance = values[i] - slope * i;
+            lineMin = Math.min(lineMin, distance);
+            lineMax = Math.max(lineMax, distance);
+            flatMin = Math.min(flatMin, values[i]);
+            flatMax = Math.max(flatMax, values[i]);
+        }
+
+        // keep whichever needs fewer bits - the flat line never needs more than 32
+        int width = widthFor(lineMax - lineMin);
+        long min = lineMin;
+        long max = lineMax;
+
+        if (width >= widthFor((long) flatMax - flatMin)) {
+            width = widthFor((long) flatMax - flatMin);
+            slope = 0;
+            min = flatMin;
+            max = flatMax;
+        }
+
+        long base = low ? max - maxOffset(width) : min;
+
+        long[] block = newBlock(base, slope, width);
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            pack(block, width, i, values[i] - slope * i - base);
+        }
+
+        return block;
+    }
+
+    // Copies every value of "block" into scratch
+    private void decode(long[] block) {
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            scratch[i] = valueAt(block, i);
+        }
+    }
+
+    // Long copies (an insert shifting everything up to a far away gap) go a whole destination block at a time - decode it, overwrite the
+    // copied slots and pack it once - instead of a set per slot, which could re-pack the same block again and again
+    // Blocks are visited in the same order as copy() visits slots, and each is only replaced after all of its slots have been read, so
+    // overlapping ranges work the same way
+    private void copyBlocks(int from, int to, int count) {
+        int first = to >>> BLOCK_SHIFT;
+        int last = (to + count - 1) >>> BLOCK_SHIFT;
+        boolean up = to > from;
+
+        for (int i = 0; i <= last - first; i++) {
+            int b = up ? last - i : first + i;
+            int start = b << BLOCK_SHIFT;
+            int lo = Math.max(to, start);
+            int hi = Math.min(to + count, start + BLOCK_SIZE);
+
+            if (blocks[b] != null) {
+                this.decode(blocks[b]);
+            }
+            for (int slot = lo - start; slot < hi - start; slot++) {
+                scratch[slot] = get(from + start + slot - to);
+            }
+            // slots never written before only matter if they are in the copied range - anything else can take the first copied value
+            if (blocks[b] == null) {
+                Arrays.fill(scratch, 0, lo - start, scratch[lo - start]);
+                Arrays.fill(scratch, hi - start, BLOCK_SIZE, scratch[lo - start]);
+            }
+
+            blocks[b] = encode(scratch, false);
+        }
+    }
+
+    // Returns a copy of "block" with "value" in "slot", at whatever line and width that needs
+    private long[] repack(long[] block, int slot, int value, boolean low) {
+        this.decode(block);
+        scratch[slot] = value;
+        return encode(scratch, low);
+    }
+
+    // === Public Methods ===
+
+    public int length() {
+        return length;
+    }
+
+    public int get(int index) {
+        long[] block = blocks[index >>> BLOCK_SHIFT];
+        if (block == null) {
+            return 0;
+        }
+        return valueAt(block, index & BLOCK_MASK);
+    }
+
+    public void set(int index, int value) {
+        int b = index >>> BLOCK_SHIFT;
+        int slot = index & BLOCK_MASK;
+        long[] block = blocks[b];
+
+        // the rest of the block is undefined so it may as well all read as this value
+        if (block == null) {
+            blocks[b] = newBlock(value, 0, 0);
+            return;
+        }
+
+        long offset = value - slope(block) * slot - base(block);
+        int width = width(block);
+
+        if (offset >= 0 && offset <= maxOffset(width)) {
+            pack(block, width, slot, offset);
+        } else {
+            blocks[b] = this.repack(block, slot, value, offset < 0);
+        }
+    }
+
+    public void read(int index, int[] dst, int offset, int count) {
+        for (int i = 0; i < count; i++) {
+            dst[offset + i] = get(index + i);
+        }
+    }
+
+    // Whole blocks are packed straight from "src" - so a bulk write (load, a copy-on-write page) leaves them as tight as possible
+    public void write(int index, int[] src, int offset, int count) {
+        while (count > 0) {
+            if ((index & BLOCK_MASK) == 0 && count >= BLOCK_SIZE) {
+                System.arraycopy(src, offset, scratch, 0, BLOCK_SIZE);
+                blocks[index >>> BLOCK_SHIFT] = encode(scratch, false);
+
+                index += BLOCK_SIZE;
+                offset += BLOCK_SIZE;
+                count -= BLOCK_SIZE;
+            } else {
+                set(index, src[offset]);
+
+                index++;
+                offset++;
+                count--;
+            }
+        }
+    }
+
+    public void copy(int from, int to, int count) {
+        if (count >= BLOCK_SIZE) {
+            this.copyBlocks(from, to, count);
+            return;
+        }
+
+        // like System.arraycopy - start from the end the values are moving towards so nothing is overwritten before it is read
+        if (to > from) {
+            for (int i = count - 1; i >= 0; i--) {
+                set(to + i, get(from + i));
+            }
+        } else if (to < from) {
+            for (int i = 0; i < count; i++) {
+                set(to + i, get(from + i));
+            }
+        }
+    }
+
+    public void fill(int from, int to, int value) {
+        for (int i = from; i < to; i++) {
+            set(i, value);
+        }
+    }
+
+    public IntStore allocate(int length) {
+        return new PackedIntStore(length);
+    }
+
+    public int[] toArray() {
+        int[] values = new int[length];
+        read(0, values, 0, length);
+        return values;
+    }
+
+    // Blocks only ever widen as values are written one at a time, so once everything is packed at the end re-pack every block as
+    // tightly as its values allow. The gaps before "liveFrom" are set to the first live value so they take no bits at all
+    public void trim(int liveFrom) {
+        int first = liveFrom < length ? get(liveFrom) : 0;
+
+        for (int b = 0; b < blocks.length; b++) {
+            int start = b << BLOCK_SHIFT;
+
+            if (start + BLOCK_SIZE <= liveFrom) {
+                // nothing but gaps
+                blocks[b] = null;
+            } else if (blocks[b] != null) {
+                this.decode(blocks[b]);
+                for (int slot = 0; start + slot < liveFrom; slot++) {
+                    scratch[slot] = first;
+                }
+                blocks[b] = encode(scratch, false);
+            }
+        }
+    }
+
+    // Rough number of bytes of heap used - the block table plus each block (array header and words)
+    public long sizeInBytes() {
+        long bytes = 16 + 4L * blocks.length;
+
+        for (long[] block : blocks) {
+            if (block != null) {
+                bytes += 16 + 8L * block.length;
+            }
+        }
+
+        return bytes;
+    }
+
+    // === Constructors ===
+
+    public PackedIntStore(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("length must not be negative: " + length);
+        }
+
+        this.length = length;
+        this.blocks = new long[(int) (((long) length + BLOCK_SIZE - 1) >>> BLOCK_SHIFT)][];
+        this.scratch = new int[BLOCK_SIZE];
+    }
+}
@@ -0,0 +1,243 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+// A set split by key range into a number of UNSWArray segments
+// Each segment has its own locks, insert queue and sizeCheck semaphore so operations on keys in different ranges never block each other
+// and member only ever has to look at (and lock) the one segment the key belongs to
+// Note: each segment has a fixed capacity so keys should be spread fairly evenly over the ranges
+public class PartitionedUNSWArray {
+    // === Class Attributes ===
+
+    // segment i holds the keys from boundaries[i - 1] (inclusive) up to boundaries[i] (exclusive)
+    // the first segment holds everything below boundaries[0] and the last everything from boundaries[boundaries.length - 1] up
+    private final int[] boundaries;
+    private final UNSWArray[] segments;
+
+    // Applies one segment's part of a batch - the values from index "from" up to "to" (exclusive)
+    private interface SegmentBatch {
+        int apply(UNSWArray segment, int[] sorted, int from, int to);
+    }
+
+    // === Private Helper Functions ===
+
+    // Finds the segment a key belongs to
+    private UNSWArray segmentFor(int x) {
+        return segments[segmentIndex(x)];
+    }
+
+    private int segmentIndex(int x) {
+        int index = Arrays.binarySearch(boundaries, x);
+
+        // a key equal to a boundary is the first key of the next segment
+        if (index >= 0) {
+            return index + 1;
+        }
+        return -index - 1; // Arrays.binarySearch() returns negative value of where index should be
+    }
+
+    // Splits a sorted batch up by segment and hands each segment its (contiguous) part, so each segment is only locked once per batch
+    // Returns the total of the results or -1 if any segment returned -1 (the other segments still get their part)
+    private int forEachSegment(int[] sorted, SegmentBatch batch) {
+        int total = 0;
+        boolean failed = false;
+        int start = 0;
+
+        while (start < sorted.length) {
+            int segment = segmentIndex(sorted[start]);
+
+            // every value up to the next boundary goes into the same segment
+            int end = start + 1;
+            while (end < sorted.length && segmentIndex(sorted[end]) == segment) {
+                end++;
+            }
+
+            int result = batch.apply(segments[segment], sorted, start, end);
+            if (result == -1) {
+                failed = true;
+            } else {
+                total += result;
+            }
+
+            start = end;
+        }
+
+        return failed ? -1 : total;
+    }
+
+    // === Public Methods ===
+
+    public int insert(int x) {
+        return segmentFor(x).insert(x);
+    }
+
+    // Splits the batch up by segment and merges each part into its segment
+    // Returns the total number of values added or -1 if any segment was interrupted or could never fit its part
+    public int insertAll(int[] values) {
+        int[] sorted = Arrays.copyOf(values, values.length);
+        Arrays.sort(sorted);
+
+        return this.forEachSegment(sorted, (segment, batch, from, to) -> segment.insertAll(Arrays.copyOfRange(batch, from, to)));
+    }
+
+    public void delete(int x) {
+        segmentFor(x).delete(x);
+    }
+
+    // Deletes a batch of values - splitting it up by segment like insertAll - and returns how many were actually removed
+    public int deleteAll(int[] values) {
+        int[] sorted = Arrays.copyOf(values, values.length);
+        Arrays.sort(sorted);
+
+        return this.forEachSegment(sorted, (segment, batch, from, to) -> segment.deleteAll(Arrays.copyOfRange(batch, from, to)));
+    }
+
+    // Deletes every value from "lo" to "hi" (both inclusive) - only the segments overlapping the range are touched
+    public int deleteRange(int lo, int hi) {
+        if (lo > hi) {
+            return 0;
+        }
+
+        int removed = 0;
+        for (int segment = segmentIndex(lo); segment <= segmentIndex(hi); segment++) {
+            removed += segments[segment].deleteRange(lo, hi);
+        }
+
+        return removed;
+    }
+
+    public boolean member(int x) {
+        return segmentFor(x).member(x);
+    }
+
+    // Looks up a batch of sorted values at once - see UNSWArray.memberAll
+    // The probes for each segment are contiguous so each segment is searched (and locked) once for its part of the batch (see forEachSegment)
+    public int memberAll(int[] sortedProbes, boolean[] out) {
+        return this.forEachSegment(sortedProbes, (segment, batch, from, to) -> segment.memberAll(batch, from, to, out));
+    }
+
+    // Cleans up each segment in turn - only one segment is locked at a time
+    public boolean cleanup() {
+        for (UNSWArray segment : segments) {
+            segment.cleanup();
+        }
+
+        return true;
+    }
+
+    // Number of live values from "lo" to "hi" (both inclusive) - only the segments overlapping the range are looked at
+    public int rangeCount(int lo, int hi) {
+        if (lo > hi) {
+            return 0;
+        }
+
+        int count = 0;
+        for (int segment = segmentIndex(lo); segment <= segmentIndex(hi); segment++) {
+            count += segments[segment].rangeCount(lo, hi);
+        }
+
+        return count;
+    }
+
+    // Calls "consumer" with every live value from "lo" to "hi" (both inclusive) in sorted order - one segment at a time
+    public void forEachInRange(int lo, int hi, IntConsumer consumer) {
+        if (lo > hi) {
+            return;
+        }
+
+        for (int segment = segmentIndex(lo); segment <= segmentIndex(hi); segment++) {
+            segments[segment].forEachInRange(lo, hi, consumer);
+        }
+    }
+
+    public PrimitiveIterator.OfInt iterator() {
+        return iterator(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    // Iterates over the live values from "lo" to "hi" (both inclusive) in sorted order by chaining the segments' iterators
+    public PrimitiveIterator.OfInt iterator(int lo, int hi) {
+        int first = segmentIndex(lo);
+        int last = lo > hi ? first - 1 : segmentIndex(hi);
+
+        return new PrimitiveIterator.OfInt() {
+            int segment = first;
+            PrimitiveIterator.OfInt current = first <= last ? segments[first].iterator(lo, hi) : null;
+
+            public boolean hasNext() {
+                while (current != null && !current.hasNext()) {
+                    segment++;
+                    current = segment <= last ? segments[segment].iterator(lo, hi) : null;
+                }
+                return current != null;
+            }
+
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.nextInt();
+            }
+        };
+    }
+
+    // Prints out the set of elements in sorted order
+    // Segments are visited in key order so the output is globally sorted, but each segment is read under its own read lock
+    // so changes made to a segment after it has been printed may not be reflected
+    public void print_sorted() {
+        StringBuilder sortedArray = new StringBuilder(" ");
+
+        for (UNSWArray segment : segments) {
+            segment.appendSorted(sortedArray);
+        }
+
+        // remove the trailing ", "
+        if (sortedArray.length() > 1) {
+            sortedArray.setLength(sortedArray.length() - 2);
+        }
+
+        System.out.print(sortedArray);
+    }
+
+    public int segmentCount() {
+        return segments.length;
+    }
+
+    // === Constructors ===
+
+    // "boundaries" must be strictly increasing - there will be boundaries.length + 1 segments each able to hold "segmentSize" values
+    public PartitionedUNSWArray(int[] boundaries, int segmentSize) {
+        for (int i = 1; i < boundaries.length; i++) {
+            if (boundaries[i] <= boundaries[i - 1]) {
+                throw new IllegalArgumentException("boundaries must be strictly increasing");
+            }
+        }
+
+        this.boundaries = Arrays.copyOf(boundaries, boundaries.length);
+        this.segments = new UNSWArray[boundaries.length + 1];
+
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new UNSWArray(segmentSize);
+        }
+    }
+
+    // Splits the keys from 0 to maxKey evenly into "partitions" segments each able to hold "segmentSize" values
+    public PartitionedUNSWArray(int partitions, int segmentSize, int maxKey) {
+        this(evenBoundaries(partitions, maxKey), segmentSize);
+    }
+
+    private static int[] evenBoundaries(int partitions, int maxKey) {
+        if (partitions <= 0 || maxKey < partitions - 1) {
+            throw new IllegalArgumentException("need at least one key per partition");
+        }
+
+        int[] boundaries = new int[partitions - 1];
+        long width = ((long) maxKey + 1) / partitions;
+
+        for (int i = 0; i < boundaries.length; i++) {
+            boundaries[i] = (int) (width * (i + 1));
+        }
+
+        return boundaries;
+    }
+}
@@ -0,0 +1,147 @@
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// A bounded multi-producer / single-consumer queue of primitive values - the insert queue of UNSWArray (IntRingBuffer) and
+// LongUNSWArray (LongRingBuffer)
+// This class only hands out positions and tracks which have been published - each subclass keeps the values in an array of its own
+// key width, so an int key takes 4 bytes in the queue rather than being widened to a long
+// Unlike ArrayBlockingQueue<Integer> nothing is boxed so putting and draining values allocates nothing
+// Producers block in put() while the buffer is full (just like ArrayBlockingQueue.put) - or use offer() to give up instead
+// There must only ever be one consumer at a time - AbstractUNSWArray guarantees this with its insertQueueDrainLock
+public abstract class RingBuffer {
+    // === Class Attributes ===
+
+    // Number of slots in the subclass's buffer - a power of two so positions can be turned into indexes with a mask
+    final int length;
+    private final int mask;
+
+    // sequence[i] is set to position + 1 once the value for that position has been written into slot i
+    // This lets the consumer tell a published slot apart from one a producer has claimed but not finished writing yet
+    private final AtomicLongArray sequence;
+
+    // Next position a producer will claim
+    private final AtomicLong tail;
+
+    // Next position the consumer will read - only ever written by the consumer
+    private volatile long head;
+
+    // Semaphore holding one permit per free slot - producers block on it while the buffer is full
+    private final Semaphore space;
+
+    private final int capacity;
+
+    // === Value Storage ===
+    // Implemented by each value type
+
+    // Writes "x" into slot "index" of the buffer - an IntRingBuffer only keeps the low 32 bits
+    abstract void store(int index, long x);
+
+    // === Private Helper Functions ===
+
+    // The caller must already hold a permit from "space"
+    private long publish(long x) {
+        long position = tail.getAndIncrement();
+        int index = (int) (position & mask);
+
+        this.store(index, x);
+        // publish the value - this must be a volatile write, see isEmpty()
+        sequence.set(index, position + 1);
+
+        return position;
+    }
+
+    // Slot of the first value waiting to be drained - for the subclass's drainTo
+    int headIndex() {
+        return (int) (head & mask);
+    }
+
+    // Number of values (up to "max") published in a row from the head - stops at the first slot that hasn't been published yet so
+    // values always come out in the order they were claimed
+    int published(int max) {
+        long position = head;
+        int count = 0;
+
+        while (count < max && sequence.get((int) (position & mask)) == position + 1) {
+            count++;
+            position++;
+        }
+
+        return count;
+    }
+
+    // Moves the head past "count" values the subclass has copied out and hands their slots back to any blocked producers
+    void consumed(int count) {
+        if (count > 0) {
+            head += count;
+            space.release(count);
+        }
+    }
+
+    // === Public Methods ===
+
+    // Add a value to the buffer - blocking until there is room
+    // Returns the position the value was put at - values are drained in position order starting from 0
+    public long put(long x) throws InterruptedException {
+        space.acquire();
+        return this.publish(x);
+    }
+
+    // Same as put but only waits up to "timeout" for room - returns -1 if there still wasn't any
+    public long offer(long x, long timeout, TimeUnit unit) throws InterruptedException {
+        if (!space.tryAcquire(timeout, unit)) {
+            return -1;
+        }
+        return this.publish(x);
+    }
+
+    // Same as put but never waits - returns -1 if the buffer is full
+    public long offer(long x) {
+        if (!space.tryAcquire()) {
+            return -1;
+        }
+        return this.publish(x);
+    }
+
+    // True if there is no published value waiting to be drained
+    // A producer publishes before it tries to become the consumer and the consumer checks this after it stops being the consumer,
+    // both with volatile accesses, so a published value can never be missed by both of them
+    public boolean isEmpty() {
+        long position = head;
+        return sequence.get((int) (position & mask)) != position + 1;
+    }
+
+    // Number of values claimed by producers but not yet drained (including any still being written)
+    public int size() {
+        return (int) (tail.get() - head);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // === Constructors ===
+
+    RingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+
+        this.capacity = capacity;
+
+        // round the buffer up to a power of two - the semaphore still only allows "capacity" values in at once
+        int length = Integer.highestOneBit(capacity);
+        if (length < capacity) {
+            length <<= 1;
+        }
+
+        this.length = length;
+        mask = length - 1;
+        sequence = new AtomicLongArray(length);
+        tail = new AtomicLong();
+        head = 0;
+
+        space = new Semaphore(capacity, true); //fairness enabled
+    }
+}
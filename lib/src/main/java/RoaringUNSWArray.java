@@ -0,0 +1,653 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// A set of ints for dense key ranges with the same insert / delete / member / cleanup / print_sorted API as UNSWArray
+// Instead of one sorted array it is split Roaring bitmap style on the high 16 bits of each key: every 65536 key chunk that has any values
+// in it gets a container holding the low 16 bits of those values in whichever of three forms suits them best
+//  - ArrayContainer:  a sorted char[] - for sparse chunks of up to ARRAY_MAX values
+//  - BitmapContainer: one bit per possible value (8KB) - once a chunk has more than ARRAY_MAX values
+//  - RunContainer:    sorted runs of consecutive values - for chunks that are mostly long runs (only chosen by cleanup)
+// So in dense ranges an insert or delete is a single bit flip, and a delete takes the value straight out of its container - there are
+// no tombstones, no compaction and no capacity, so inserts never wait for room
+// Note: a chunk only ever moves to a smaller form in cleanup, never on delete, so alternating inserts and deletes can't keep converting it
+//
+// Each chunk is guarded by one of STRIPES read / write locks (chunk index modulo STRIPES) so writes to different chunks mostly go ahead
+// in parallel - rangeCount, sizeInBytes, cleanup and the batch operations take the locks one chunk at a time and are not atomic as a
+// whole, while toSortedArray and print_sorted take every read lock at once for an exact point in time copy
+public class RoaringUNSWArray {
+    // === Class Attributes ===
+
+    // Largest number of values an ArrayContainer holds - past this a bitmap (8KB) is smaller than the 2 bytes per value of an array
+    static final int ARRAY_MAX = 4096;
+
+    // Largest number of runs a RunContainer holds before it is turned into a bitmap (4 bytes per run - the same 8KB)
+    static final int RUNS_MAX = 2048;
+
+    private static final int STRIPES = 64;
+
+    // Indexed by the high 16 bits of a key with the sign bit flipped, so the chunks are in signed order from Integer.MIN_VALUE up
+    // null for a chunk with no values in it
+    private final Container[] containers;
+    private final ReentrantReadWriteLock[] locks;
+
+    // Number of values in the set - kept up to date by every insert and delete
+    private final AtomicInteger liveCount;
+
+    // === Containers ===
+    // None of them lock - they are only used while holding the lock of their chunk (the write lock for add and remove)
+
+    private abstract static class Container {
+        abstract int cardinality();
+
+        abstract boolean contains(int low);
+
+        // Both return the container to keep for the chunk, which is this one unless it had to change form
+        // Whether the value was actually added or removed shows up in cardinality()
+        abstract Container add(int low);
+
+        abstract Container remove(int low);
+
+        // Number of values below "low" (0 to 65536)
+        abstract int rank(int low);
+
+        // Copies every value (just the low 16 bits) into "out" in sorted order and returns how many there were
+        abstract int lows(char[] out);
+
+        abstract long sizeInBytes();
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+        private int size;
+
+        ArrayContainer(char[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        int cardinality() {
+            return size;
+        }
+
+        boolean contains(int low) {
+            return Arrays.binarySearch(values, 0, size, (char) low) >= 0;
+        }
+
+        Container add(int low) {
+            int index = Arrays.binarySearch(values, 0, size, (char) low);
+            if (index >= 0) {
+                return this;
+            }
+
+            // full - switch to a bitmap, where the value is just one more bit
+            if (size == ARRAY_MAX) {
+                return new BitmapContainer(values, size).add(low);
+            }
+
+            index = -index - 1; // Arrays.binarySearch() returns negative value of where index should be
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, size * 2)));
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = (char) low;
+            size++;
+            return this;
+        }
+
+        Container remove(int low) {
+            int index = Arrays.binarySearch(values, 0, size, (char) low);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, size - index - 1);
+                size--;
+            }
+            return this;
+        }
+
+        int rank(int low) {
+            if (low > Character.MAX_VALUE) {
+                return size;
+            }
+            int index = Arrays.binarySearch(values, 0, size, (char) low);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        int lows(char[] out) {
+            System.arraycopy(values, 0, out, 0, size);
+            return size;
+        }
+
+        long sizeInBytes() {
+            return 32 + 2L * values.length;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words = new long[1024];
+        private int cardinality;
+
+        BitmapContainer(char[] lows, int count) {
+            for (int i = 0; i < count; i++) {
+                words[lows[i] >>> 6] |= 1L << lows[i];
+            }
+            this.cardinality = count;
+        }
+
+        int cardinality() {
+            return cardinality;
+        }
+
+        boolean contains(int low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        Container add(int low) {
+            long before = words[low >>> 6];
+            words[low >>> 6] = before | (1L << low);
+            if (before != words[low >>> 6]) {
+                cardinality++;
+            }
+            return this;
+        }
+
+        Container remove(int low) {
+            long before = words[low >>> 6];
+            words[low >>> 6] = before & ~(1L << low);
+            if (before != words[low >>> 6]) {
+                cardinality--;
+            }
+            return this;
+        }
+
+        int rank(int low) {
+            if (low > Character.MAX_VALUE) {
+                return cardinality;
+            }
+            int count = 0;
+            for (int i = 0; i < low >>> 6; i++) {
+                count += Long.bitCount(words[i]);
+            }
+            return count + Long.bitCount(words[low >>> 6] & ((1L << low) - 1));
+        }
+
+        int lows(char[] out) {
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    out[count++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return count;
+        }
+
+        long sizeInBytes() {
+            return 32 + 16 + 8L * words.length;
+        }
+    }
+
+    private static final class RunContainer extends Container {
+        // run i covers starts[i] to starts[i] + lengths[i] (inclusive) - a run of one value has length 0
+        private char[] starts;
+        private char[] lengths;
+        private int runs;
+        private int cardinality;
+
+        // "lows" must hold "count" sorted values making up exactly "runs" runs
+        RunContainer(char[] lows, int count, int runs) {
+            this.starts = new char[runs];
+            this.lengths = new char[runs];
+            this.cardinality = count;
+
+            int run = -1;
+            for (int i = 0; i < count; i++) {
+                if (i > 0 && lows[i] == lows[i - 1] + 1) {
+                    lengths[run]++;
+                } else {
+                    run++;
+                    starts[run] = lows[i];
+                }
+            }
+            this.runs = run + 1;
+        }
+
+        // Index of the last run starting at or before "low", or -1 if there isn't one
+        private int runAtOrBefore(int low) {
+            int index = Arrays.binarySearch(starts, 0, runs, (char) low);
+            return index >= 0 ? index : -index - 2;
+        }
+
+        private int end(int run) {
+            return starts[run] + lengths[run];
+        }
+
+        private void insertRun(int index, int start, int length) {
+            if (runs == starts.length) {
+                starts = Arrays.copyOf(starts, Math.max(4, runs * 2));
+                lengths = Arrays.copyOf(lengths, Math.max(4, runs * 2));
+            }
+            System.arraycopy(starts, index, starts, index + 1, runs - index);
+            System.arraycopy(lengths, index, lengths, index + 1, runs - index);
+            starts[index] = (char) start;
+            lengths[index] = (char) length;
+            runs++;
+        }
+
+        private void removeRun(int index) {
+            System.arraycopy(starts, index + 1, starts, index, runs - index - 1);
+            System.arraycopy(lengths, index + 1, lengths, index, runs - index - 1);
+            runs--;
+        }
+
+        // Past RUNS_MAX runs a bitmap is smaller, and keeps adds and removes O(1) rather than shifting the runs along
+        private Container checkRuns() {
+            if (runs <= RUNS_MAX) {
+                return this;
+            }
+            char[] out = new char[cardinality];
+            return new BitmapContainer(out, this.lows(out));
+        }
+
+        int cardinality() {
+            return cardinality;
+        }
+
+        boolean contains(int low) {
+            int run = runAtOrBefore(low);
+            return run >= 0 && low <= end(run);
+        }
+
+        Container add(int low) {
+            int run = runAtOrBefore(low);
+            if (run >= 0 && low <= end(run)) {
+                return this;
+            }
+            cardinality++;
+
+            boolean extendsBefore = run >= 0 && low == end(run) + 1;
+            boolean extendsAfter = run + 1 < runs && low + 1 == starts[run + 1];
+
+            if (extendsBefore && extendsAfter) {
+                // fills the hole between two runs - join them
+                lengths[run] = (char) (end(run + 1) - starts[run]);
+                removeRun(run + 1);
+            } else if (extendsBefore) {
+                lengths[run]++;
+            } else if (extendsAfter) {
+                starts[run + 1]--;
+                lengths[run + 1]++;
+            } else {
+                insertRun(run + 1, low, 0);
+            }
+            return this.checkRuns();
+        }
+
+        Container remove(int low) {
+            int run = runAtOrBefore(low);
+            if (run < 0 || low > end(run)) {
+                return this;
+            }
+            cardinality--;
+
+            int end = end(run);
+            if (lengths[run] == 0) {
+                removeRun(run);
+            } else if (low == starts[run]) {
+                starts[run]++;
+                lengths[run]--;
+            } else if (low == end) {
+                lengths[run]--;
+            } else {
+                // splits the run in two
+                lengths[run] = (char) (low - 1 - starts[run]);
+                insertRun(run + 1, low + 1, end - low - 1);
+            }
+            return this.checkRuns();
+        }
+
+        int rank(int low) {
+            int count = 0;
+            for (int i = 0; i < runs && starts[i] < low; i++) {
+                count += Math.min(end(i), low - 1) - starts[i] + 1;
+            }
+            return count;
+        }
+
+        int lows(char[] out) {
+            int count = 0;
+            for (int i = 0; i < runs; i++) {
+                for (int low = starts[i]; low <= end(i); low++) {
+                    out[count++] = (char) low;
+                }
+            }
+            return count;
+        }
+
+        long sizeInBytes() {
+            return 32 + 2 * 16 + 4L * starts.length;
+        }
+    }
+
+    // === Private Helper Functions ===
+
+    private static int chunkIndex(int x) {
+        return (x >>> 16) ^ 0x8000;
+    }
+
+    private static int low(int x) {
+        return x & 0xFFFF;
+    }
+
+    private static int valueOf(int chunk, int low) {
+        return ((chunk ^ 0x8000) << 16) | low;
+    }
+
+    private ReentrantReadWriteLock lockFor(int chunk) {
+        return locks[chunk & (STRIPES - 1)];
+    }
+
+    // Takes the read lock of every stripe - always in index order so two threads doing this at once can't deadlock, and nothing else
+    // ever holds more than one stripe's lock. Every insert and delete waits until unlockAll
+    private void lockAll() {
+        for (ReentrantReadWriteLock lock : locks) {
+            lock.readLock().lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = STRIPES - 1; i >= 0; i--) {
+            locks[i].readLock().unlock();
+        }
+    }
+
+    // The calling function must hold the write lock of the chunk "x" belongs to
+    // Returns 1 if "x" was added or 0 if it was already in the set
+    private int addToChunk(int x) {
+        int chunk = chunkIndex(x);
+        Container container = containers[chunk];
+
+        if (container == null) {
+            containers[chunk] = new ArrayContainer(new char[] {(char) low(x)}, 1);
+            liveCount.incrementAndGet();
+            return 1;
+        }
+
+        int before = container.cardinality();
+        container = container.add(low(x));
+        containers[chunk] = container;
+
+        if (container.cardinality() == before) {
+            return 0;
+        }
+        liveCount.incrementAndGet();
+        return 1;
+    }
+
+    // The calling function must hold the write lock of the chunk "x" belongs to
+    // Returns 1 if "x" was removed or 0 if it wasn't in the set
+    private int removeFromChunk(int x) {
+        int chunk = chunkIndex(x);
+        Container container = containers[chunk];
+
+        if (container == null) {
+            return 0;
+        }
+
+        int before = container.cardinality();
+        container = container.remove(low(x));
+
+        if (container.cardinality() == before) {
+            return 0;
+        }
+        liveCount.decrementAndGet();
+
+        // an empty chunk takes no memory at all
+        containers[chunk] = container.cardinality() == 0 ? null : container;
+        return 1;
+    }
+
+    // Adds or removes every value in "values" - sorted first so each chunk's lock is only taken once
+    private int applyAll(int[] values, boolean add) {
+        int[] sorted = Arrays.copyOf(values, values.length);
+        Arrays.sort(sorted);
+
+        int changed = 0;
+        int start = 0;
+        while (start < sorted.length) {
+            int chunk = chunkIndex(sorted[start]);
+            ReentrantReadWriteLock lock = lockFor(chunk);
+
+            lock.writeLock().lock();
+
+            // Try / finally block for safety
+            try {
+                for (; start < sorted.length && chunkIndex(sorted[start]) == chunk; start++) {
+                    changed += add ? this.addToChunk(sorted[start]) : this.removeFromChunk(sorted[start]);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        return changed;
+    }
+
+    // Picks whichever form of the chunk's values takes the least memory - "scratch" must have room for 65536 values
+    private static Container optimize(Container container, char[] scratch) {
+        int count = container.lows(scratch);
+
+        int runs = count == 0 ? 0 : 1;
+        for (int i = 1; i < count; i++) {
+            if (scratch[i] != scratch[i - 1] + 1) {
+                runs++;
+            }
+        }
+
+        // 4 bytes per run, 2 per value in an array, 8KB for a bitmap
+        if (4L * runs < Math.min(2L * count, 8192)) {
+            return new RunContainer(scratch, count, runs);
+        } else if (count <= ARRAY_MAX) {
+            return new ArrayContainer(Arrays.copyOf(scratch, count), count);
+        } else if (container instanceof BitmapContainer) {
+            return container;
+        }
+        return new BitmapContainer(scratch, count);
+    }
+
+    // === Public Methods ===
+
+    // Insert a value into the set - returns 1 if it was added or 0 if it was already there
+    // Never waits for room as there is no capacity
+    public int insert(int x) {
+        ReentrantReadWriteLock lock = lockFor(chunkIndex(x));
+
+        lock.writeLock().lock();
+
+        // Try / finally block for safety
+        try {
+            return this.addToChunk(x);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Insert a batch of values and return how many were actually added
+    // Not atomic as a whole - another thread may see the values of some chunks added and not others
+    public int insertAll(int[] values) {
+        return this.applyAll(values, true);
+    }
+
+    // Delete a value from the set - it is gone straight away, nothing is left behind for cleanup
+    public void delete(int x) {
+        ReentrantReadWriteLock lock = lockFor(chunkIndex(x));
+
+        lock.writeLock().lock();
+
+        // Try / finally block for safety
+        try {
+            this.removeFromChunk(x);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Deletes a batch of values and returns how many were actually in the set
+    // Not atomic as a whole - another thread may see the values of some chunks removed and not others
+    public int deleteAll(int[] values) {
+        return this.applyAll(values, false);
+    }
+
+    // Checks if value x exists in the set - O(1) for bitmap chunks and a binary search for array and run chunks
+    public boolean member(int x) {
+        int chunk = chunkIndex(x);
+        ReentrantReadWriteLock lock = lockFor(chunk);
+
+        lock.readLock().lock();
+
+        // Try / finally block for safety
+        try {
+            Container container = containers[chunk];
+            return container != null && container.contains(low(x));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Number of values from "lo" to "hi" (both inclusive) - whole chunks in between are just their cardinality
+    public int rangeCount(int lo, int hi) {
+        if (lo > hi) {
+            return 0;
+        }
+
+        int first = chunkIndex(lo);
+        int last = chunkIndex(hi);
+        int count = 0;
+
+        for (int chunk = first; chunk <= last; chunk++) {
+            ReentrantReadWriteLock lock = lockFor(chunk);
+
+            lock.readLock().lock();
+
+            // Try / finally block for safety
+            try {
+                Container container = containers[chunk];
+                if (container != null) {
+                    int from = chunk == first ? container.rank(low(lo)) : 0;
+                    int to = chunk == last ? container.rank(low(hi) + 1) : container.cardinality();
+                    count += to - from;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        return count;
+    }
+
+    public int getLiveCount() {
+        return liveCount.get();
+    }
+
+    // Every value in the set in sorted order, as an exact point in time copy - every read lock is held while the chunks are read
+    // Unlike UNSWArray.getArray there are no slots to show, so this is just the live values (no -1 gaps)
+    public int[] toSortedArray() {
+        char[] scratch = new char[1 << 16];
+        int size = 0;
+
+        this.lockAll();
+
+        // Try / finally block for safety
+        try {
+            // liveCount only changes under a chunk's write lock so it can't move while every read lock is held
+            int[] values = new int[liveCount.get()];
+
+            for (int chunk = 0; chunk < containers.length; chunk++) {
+                Container container = containers[chunk];
+                int count = container == null ? 0 : container.lows(scratch);
+
+                for (int i = 0; i < count; i++) {
+                    values[size++] = valueOf(chunk, scratch[i]);
+                }
+            }
+
+            return values;
+        } finally {
+            this.unlockAll();
+        }
+    }
+
+    // Rough number of bytes of heap used - the chunk table plus every container
+    public long sizeInBytes() {
+        long bytes = 16 + 4L * containers.length;
+
+        for (int chunk = 0; chunk < containers.length; chunk++) {
+            ReentrantReadWriteLock lock = lockFor(chunk);
+
+            lock.readLock().lock();
+
+            // Try / finally block for safety
+            try {
+                if (containers[chunk] != null) {
+                    bytes += containers[chunk].sizeInBytes();
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        return bytes;
+    }
+
+    // There are no tombstones to clean up - all this does is move each chunk to whichever form takes the least memory (see optimize)
+    // That is the only place run containers come from, and the only time a bitmap goes back to an array after deletes
+    // Returns true like UNSWArray.cleanup
+    public boolean cleanup() {
+        char[] scratch = new char[1 << 16];
+
+        for (int chunk = 0; chunk < containers.length; chunk++) {
+            ReentrantReadWriteLock lock = lockFor(chunk);
+
+            lock.writeLock().lock();
+
+            // Try / finally block for safety
+            try {
+                if (containers[chunk] != null) {
+                    containers[chunk] = optimize(containers[chunk], scratch);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        return true;
+    }
+
+    // Public facing print function
+    // Prints out the set of elements in sorted order - in the same format as UNSWArray.print_sorted, and like it an exact point in
+    // time copy (see toSortedArray)
+    public void print_sorted() {
+        int[] values = this.toSortedArray();
+        StringBuilder sb = new StringBuilder(" ");
+
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(values[i]);
+        }
+
+        System.out.print(sb);
+    }
+
+    // === Constructors ===
+
+    public RoaringUNSWArray() {
+        this.containers = new Container[1 << 16];
+        this.locks = new ReentrantReadWriteLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantReadWriteLock(true); //fairness enabled
+        }
+        this.liveCount = new AtomicInteger();
+    }
+}
@@ -1,102 +1,376 @@
-import java.util.concurrent.locks.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.Semaphore;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
-public class UNSWArray {
+public class UNSWArray extends AbstractUNSWArray {
     // === Class Attributes ===
 
-    // The array itself
-    private int[] array;
+    // Snapshot file layout (see snapshot / load) - a header followed by the live values in sorted order, all little endian
+    // magic (int), version (int), count (int), capacity (int), CRC32 of the values (long)
+    private static final int SNAPSHOT_MAGIC = 0x554E5357; // "UNSW"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_HEADER = 24;
 
-    // ReentrantReadWriteLock to prevent multiple writes occuring at the same time while allowing multiple readers if no writers
-    // Also supports a fairness parameter which we will make use of
-    private final ReentrantReadWriteLock globalLock;
-    private final Lock r;
-    private final Lock w;
-    private int MAX_SIZE = 10001;
+    // Number of values mapped and copied at a time when writing or reading a snapshot (4MB)
+    private static final int SNAPSHOT_BLOCK = 1 << 20;
 
-    // A queue to buffer insert operations - meaning in theory we can gather a number of insert operations in the queue and then apply them all at once
-    private ArrayBlockingQueue<Integer> insertQueue;
+    // Most keys (deleteAll) or slots (deleteRange) a bulk delete works through per write lock acquisition - so readers and writers
+    // get a turn in between chunks of a very large purge
+    private static final int DELETE_CHUNK = 1 << 16;
 
-    // ReentrantLock to allow only one process to drain from the insert queue at a time
-    private final ReentrantLock insertQueueDrainLock;
+    // Number of values writeSorted copies out of the array at a time
+    private static final int EXPORT_CHUNK = 4096;
 
-    // Semaphore to block array from exceeding maximum size and block calls to insert until there is space
-    private final Semaphore sizeCheck;
+    // How writeSorted writes values to a channel - TEXT is the same as print_sorted ("1, 2, 3" in ASCII) and BINARY is each value
+    // as a little endian int
+    public enum Format {
+        TEXT,
+        BINARY
+    }
 
-    // === Private Helper Functions ===
+    // Receives each chunk of values read by exportSorted - "first" is true for the chunk holding the smallest value
+    private interface ChunkWriter {
+        void write(int[] values, int count, boolean first) throws IOException;
+    }
+
+    // The array itself - an int[] on the heap by default, memory outside the heap or bit-packed blocks (see IntStore)
+    // Switched to copy-on-write pages once a snapshotView has been taken
+    private IntStore array;
+
+    // The insert queue (also the engine's insertQueue) and the buffer it is drained into - only touched by the thread holding
+    // insertQueueDrainLock
+    private final IntRingBuffer queue;
+    private final int[] drained;
+
+    // === Key Storage ===
+
+    int length() {
+        return array.length();
+    }
+
+    void moveSlot(int from, int to) {
+        array.set(to, array.get(from));
+    }
+
+    void reallocate(int newCapacity) {
+        IntStore resized = array.allocate(newCapacity);
+
+        // copy the live values across to the end of the new array
+        int editIndex = newCapacity - 1;
+        for (int readIndex = occupied.prevSetBit(array.length() - 1); readIndex != -1; readIndex = occupied.prevSetBit(readIndex - 1)) {
+            resized.set(editIndex, array.get(readIndex));
+            editIndex--;
+        }
+        resized.trim(editIndex + 1);
+
+        array = resized;
+    }
+
+    void trim(int liveFrom) {
+        array.trim(liveFrom);
+    }
+
+    // === Insert Queue Draining ===
+
+    int drainKeys() {
+        return queue.drainTo(drained, drained.length);
+    }
+
+    int sortDrainedKeys(int count) {
+        return sortAndDedupe(drained, count);
+    }
+
+    int applyDrainedKeys(int count) {
+        return this.applyBatch(drained, count);
+    }
 
-    private void swapElement(int x, int y) {
-        int temp = array[x];
-        array[x] = array[y];
-        array[y] = temp;
+    long logDrainedKeys(WriteAheadLog log, int count) {
+        return log.append(WriteAheadLog.INSERT, drained, count);
     }
 
+    // === Private Helper Functions ===
+
     // The calling function must have acquired the global write lock before using this function to ensure mutex
-    // Provides the actual logic of inserting a value into the array
-    // Insert element at beginning swap until order is correct - O(n) since the array is always sorted before insertion (ie insertion sort with only 1 pass)
-    private void insertIntoArray(int val) {
-        array[0] = val;
+    // Provides the actual logic of inserting a value into the array and returns how many values had to be shifted (or -1 if the array is full)
+    // Binary search for where the value belongs then take the closest gap on either side of that position, shifting only the values in between
+    // So the cost depends on the distance to the nearest gap rather than the size of the array
+    private int insertIntoArray(int val) {
+        int pos = findInsertPosition(val);
+
+        // search outwards for the nearest gap - preferring the left so values stay packed towards the end of the array
+        int left = pos - 1;
+        int right = pos;
+
+        while (left >= 0 || right < array.length()) {
+            if (left >= 0 && !occupied.get(left)) {
+                // shift everything between the gap and pos one place left
+                array.copy(left + 1, left, pos - 1 - left);
+                array.set(pos - 1, val);
+                occupied.set(left);
+                return pos - 1 - left;
+            }
 
-        for (int i = 0; i < array.length - 1; i++) {
-            if (array[i] > array[i+1]) {
-                swapElement(i, i+1);
+            if (right < array.length() && !occupied.get(right)) {
+                // shift everything between pos and the gap one place right
+                array.copy(pos, pos + 1, right - pos);
+                array.set(pos, val);
+                occupied.set(right);
+                return right - pos;
             }
+
+            left--;
+            right++;
         }
+
+        // no room - sizeCheck should prevent us ever getting here
+        return -1;
+    }
+
+    // Sorts the first "count" values and removes duplicates in place - returns how many distinct values are left at the front
+    private static int sortAndDedupe(int[] values, int count) {
+        Arrays.sort(values, 0, count);
+
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || values[distinct - 1] != values[i]) {
+                values[distinct] = values[i];
+                distinct++;
+            }
+        }
+
+        return distinct;
     }
 
     // The calling function must have acquired the global write lock before using this function to ensure mutex
-    // Provides the actual logic of the cleanup operation and pushes -1 values as far to the end as possible up to "upTo"
-    private void forceCleanup(int upTo) {
+    // Applies the sorted, duplicate free values in "values" (up to "count") to the array and returns how many were actually added
+    // Values go in one at a time with insertIntoArray while that is cheap (ie there are gaps nearby) but as soon as the shifting done so far
+    // costs as much as a full merge the rest of the batch is merged in with mergeIntoArray - so a batch never costs more than about two merges
+    private int applyBatch(int[] values, int count) {
+        int added = 0;
+        int budget = array.length();
+
+        for (int i = 0; i < count; i++) {
+            if (budget < 0) {
+                return added + this.mergeIntoArray(values, i, count);
+            }
 
-        if (upTo <= 0) {
-            return; // don't do anything
-        } else {
-            // read down from index upTo to index 0 and put all non -1 values immediately before index upTo
-            int editIndex = upTo;
+            // do not insert duplicate
+            if (findIndex(values[i]) != -1) {
+                continue;
+            }
 
-            for (int readIndex = upTo; readIndex > 0; readIndex--) {
-                if (array[readIndex] != -1) {
-                    array[editIndex] = array[readIndex];
-                    editIndex--;
+            int shifted = this.insertIntoArray(values[i]);
+            if (shifted != -1) {
+                added++;
+                budget -= shifted + 1;
+            }
+        }
+
+        return added;
+    }
+
+    // The calling function should have acquired the global read or write lock before calling this function
+    // Counts how many of the sorted, duplicate free values in "values" (up to "count") are not in the array - O(n + k)
+    private int countMissing(int[] values, int count) {
+        int missing = 0;
+        int readIndex = occupied.nextSetBit(0);
+
+        for (int valIndex = 0; valIndex < count; valIndex++) {
+            // skip all gaps and anything smaller than the value we're looking for
+            while (readIndex != -1 && array.get(readIndex) < values[valIndex]) {
+                readIndex = occupied.nextSetBit(readIndex + 1);
+            }
+
+            if (readIndex == -1 || array.get(readIndex) != values[valIndex]) {
+                missing++;
+            }
+        }
+
+        return missing;
+    }
+
+    // The calling function must have acquired the global write lock before using this function to ensure mutex
+    // Merges the sorted, duplicate free values in "values" (from index "from" up to "to") into the array and returns how many were actually added
+    // Two linear passes - O(n + k): live values are first packed to the left of the array and then merged back from the right
+    // so the array finishes fully compacted with all the gaps at the beginning
+    private int mergeIntoArray(int[] values, int from, int to) {
+        // pack all live values to the left
+        int live = 0;
+        for (int readIndex = occupied.nextSetBit(0); readIndex != -1; readIndex = occupied.nextSetBit(readIndex + 1)) {
+            array.set(live, array.get(readIndex));
+            live++;
+        }
+
+        // merge from the right - the write index can never overtake the read index as long as the values fit (sizeCheck ensures this)
+        int editIndex = array.length() - 1;
+        int readIndex = live - 1;
+        int valIndex = to - 1;
+        int added = 0;
+
+        while (valIndex >= from) {
+            if (readIndex >= 0 && array.get(readIndex) >= values[valIndex]) {
+                // do not insert duplicate
+                if (array.get(readIndex) == values[valIndex]) {
+                    valIndex--;
                 }
+                array.set(editIndex, array.get(readIndex));
+                readIndex--;
+            } else {
+                array.set(editIndex, values[valIndex]);
+                valIndex--;
+                added++;
             }
-            if (editIndex <= 0) return;
+            editIndex--;
+        }
+
+        // shift the remaining (smallest) live values across
+        while (readIndex >= 0) {
+            array.set(editIndex, array.get(readIndex));
+            editIndex--;
+            readIndex--;
+        }
+
+        // everything at the beginning of the array is now a gap
+        occupied.clearRange(0, editIndex + 1);
+        occupied.setRange(editIndex + 1, array.length());
+
+        return added;
+    }
+
+    // The calling function should have acquired the global read or write lock before calling this function
+    // Binary search for the position "val" belongs at - returns the index of the first live value larger than "val" (or array.length)
+    private int findInsertPosition(int val) {
+        return findInsertPosition(val, 0, array.length());
+    }
+
+    // Same as findInsertPosition(val) but only searches from "low" up to "high" - every live value before "low" must be no larger than "val"
+    // and "high" must be either array.length or the index of a live value larger than "val"
+    private int findInsertPosition(int val, int low, int high) {
+        // high is always either array.length or the index of a live value larger than "val"
+
+        while (low < high) {
+            int mid = low + (high - low) / 2;
+
+            // skip all gaps - forwards first and if everything up to high is a gap then backwards
+            int live = occupied.nextSetBit(mid);
+
+            if (live == -1 || live >= high) {
+                live = occupied.prevSetBit(mid - 1);
 
-            // populate beginning of array with all the -1 values
-            else {
-                for (int i = 0; i <= editIndex; i++) {
-                    array[i] = -1;
+                // everything between low and high is a gap
+                if (live < low) {
+                    return high;
                 }
             }
+
+            // with only the read lock held a delete running at the same time may clear the bit just after we found it - but it never
+            // touches the value so this is still the (sorted) value the slot held
+            int value = array.get(live);
+
+            if (value > val) {
+                high = live;
+            } else {
+                low = live + 1;
+            }
+        }
+
+        return high;
+    }
+
+    // The calling function should have acquired the global read or write lock before calling this function
+    // Returns the index of the first live value that is at least "val" (or array.length) - every live value before "position" must be smaller
+    // Gallops forwards from "position" (1, 2, 4, ... slots) until it passes "val" and then binary searches just that stretch, so a run of
+    // searches for increasing values each only costs O(log(distance moved)) rather than O(log n)
+    private int gallopTo(int val, int position) {
+        int length = array.length();
+
+        // "high" ends up as the first live value we saw that is at least "val" (or length)
+        int low = position;
+        int high = length;
+        int bound = position;
+        int step = 1;
+
+        while (bound < length) {
+            int next = occupied.nextSetBit(bound);
+            if (next == -1) {
+                break;
+            }
+
+            int value = array.get(next);
+
+            if (value >= val) {
+                high = next;
+                break;
+            }
+
+            low = next + 1;
+            bound = (int) Math.min(length, (long) next + step);
+            step <<= 1;
+        }
+
+        // nothing is smaller than Integer.MIN_VALUE so the gallop stopped at the first live value
+        if (val == Integer.MIN_VALUE) {
+            return high;
         }
+
+        // binary search the stretch we galloped over
+        return findInsertPosition(val - 1, low, high);
+    }
+
+    // The calling function should have acquired the global read or write lock before calling this function
+    // Returns an index at or before the first live value that is at least "lo" (and after every live value smaller than "lo")
+    private int rangeStart(int lo) {
+        if (lo == Integer.MIN_VALUE) {
+            int first = occupied.nextSetBit(0);
+            return first == -1 ? array.length() : first;
+        }
+        return findInsertPosition(lo - 1);
     }
 
     // The calling function should IDEALLY (but not necessarily) have obtained the global read lock before calling this function
     // Finds the index of the value "x" in the array or returns -1 if not found
     // Comments within this function are sparse - it just works...
+    // It may be called without any lock in optimistic read mode so it only reads the array field once and never leaves [low, high]
     private int findIndex(int x) {
+        IntStore array = this.array;
+        OccupancyBitmap occupied = this.occupied;
         int low = 0;
-        int high = array.length - 1;
+        int high = array.length() - 1;
 
         while (low <= high) {
-            int mid = low + (high - low) / 2;
+            int start = low + (high - low) / 2;
 
-            // skip all negative values
-            while (array[mid] == -1 && mid < high) {
-                mid++;
-            }
+            // skip all gaps - the occupancy bitmap takes us straight to the next live value
+            // (its reads have acquire ordering so a delete that has finished on another core is always seen - see delete)
+            int mid = occupied.nextSetBit(start);
 
-            if (mid > high) {
-                return -1;
+            // everything from start up to high is a gap so keep searching to the left of it
+            if (mid == -1 || mid > high) {
+                high = start - 1;
+                continue;
             }
 
+            int value = array.get(mid);
+
             // return index of element
-            if (array[mid] == x) {
+            if (value == x) {
                 return mid;
 
-            } else if (array[mid] < x) {
+            } else if (value < x) {
                 low = mid + 1;
             } else {
                 high = mid - 1;
@@ -106,130 +380,490 @@ public class UNSWArray {
         return -1;
     }
 
+    // Writes the snapshot file itself from "view" (see snapshot) - needs no lock as the view never changes
+    private static void writeSnapshot(Path path, UNSWArrayView view, int capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            PrimitiveIterator.OfInt values = view.iterator();
+            CRC32 checksum = new CRC32();
+            int[] block = new int[Math.min(SNAPSHOT_BLOCK, Math.max(1, view.size()))];
+            int count = 0;
+
+            while (count < view.size()) {
+                int n = Math.min(block.length, view.size() - count);
+                for (int i = 0; i < n; i++) {
+                    block[i] = values.nextInt();
+                }
+
+                MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, SNAPSHOT_HEADER + 4L * count, 4L * n);
+                out.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().put(block, 0, n);
+                checksum.update(out.duplicate());
+                out.force();
+                count += n;
+            }
+
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, SNAPSHOT_HEADER);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putInt(count).putInt(capacity).putLong(checksum.getValue());
+            header.force();
+        }
+    }
+
+    // The calling function must have acquired the global write lock before using this function to ensure mutex
+    // Freezes the array's pages and occupancy bits into a view (see snapshotView)
+    private UNSWArrayView freezeView() {
+        if (!(array instanceof CopyOnWriteIntStore)) {
+            array = new CopyOnWriteIntStore(array);
+        }
+
+        IntStore[] pages = ((CopyOnWriteIntStore) array).freeze();
+
+        // deletes only clear bits so the bits have to be frozen as well as the values
+        return new UNSWArrayView(pages, occupied.copyWords(), occupied.cardinality(0, array.length()));
+    }
+
     // === Public Methods ===
 
     // Insert a value into the array "atomically"
     public int insert(int x) {
+        return this.insertKey(x);
+    }
+
+    // Insert a value into the array, waiting at most "timeout" for it
+    // Unlike insert the result doesn't depend on which thread happened to drain the queue - returns 1 once the value is in the array
+    // (and durable if a write ahead log is enabled), 0 if there was no room in the array or the insert queue in time or -1 if interrupted
+    // before it was queued
+    // Returns 2 if the value was queued but not applied in time (eg the drain is waiting behind a long read) - it is still applied, but
+    // may not be in the array yet. An interrupt once the value is queued doesn't cut the wait short - it is kept for the caller
+    public int tryInsert(int x, long timeout, TimeUnit unit) {
+        return this.tryInsertKey(x, timeout, unit);
+    }
+
+    // Insert a value without waiting for room or for another thread to apply it
+    // The future completes with true once the value is in the array (and durable if a write ahead log is enabled), with false straight
+    // away if there is no room for it (or the calling thread is interrupted), or exceptionally if the log can't be written
+    // Never waits for room in the array or the insert queue - if the queue is full the value is queued from the executor instead (see
+    // setExecutor). The one wait left is for the write lock when the calling thread ends up draining the queue for everyone (see
+    // AbstractUNSWArray.drainInsertQueue), which is no longer than any other insert waits for it
+    // So a few threads can keep any number of inserts in flight rather than parking one thread per insert
+    public CompletableFuture<Boolean> insertAsync(int x) {
+        return this.insertKeyAsync(x);
+    }
+
+    // Insert a batch of values "atomically"
+    // The batch is sorted, de-duplicated and merged with the array in a single write lock acquisition rather than going through the insert queue
+    // Returns the number of values actually added (values already in the array are skipped) or -1 if interrupted or the batch can never fit
+    public int insertAll(int[] values) {
+        // sort a copy of the batch and remove duplicates in place
+        int[] batch = Arrays.copyOf(values, values.length);
+        int count = sortAndDedupe(batch, batch.length);
+
+        // Permits are only needed for values that are not already in the array, which is only known while holding the write lock
+        // We can't block on the sizeCheck semaphore while holding the write lock (deletes need the read lock to hand permits back)
+        // so if there aren't enough permits we wait for them outside the lock and then check again
+        int reserved = 0;
+        int added;
+        WriteAheadLog log = this.log;
+        long sequence = 0;
 
-        // First add the item to the insert queue - we allow it to block if the queue is full!
         try {
-            // wait until there is room in the array - the sizeCheck semaphore ensures this
-            // deletion operations will release permits back to the semaphore and unblock this if required
-            sizeCheck.acquire();
-            // If put() is interrupted without succeeding we want to hand back a permit
-            try {
-                insertQueue.put(x);
-            } catch (InterruptedException e) {
-                // Error handling - hand back permit
-                sizeCheck.release();
-                return -1;
+            while (true) {
+                int needed;
+
+                long lockedAt = this.lockWrite();
+
+                // Try / finally block for safety
+                try {
+                    needed = this.countMissing(batch, count);
+
+                    // there will never be enough room for this batch
+                    if (needed > Math.max(array.length(), maxCapacity)) {
+                        sizeCheck.release(reserved);
+                        return -1;
+                    }
+
+                    if (needed <= reserved || sizeCheck.tryAcquire(needed - reserved)) {
+                        reserved = Math.max(reserved, needed);
+                        added = this.mergeIntoArray(batch, 0, count);
+
+                        if (log != null && added > 0) {
+                            sequence = log.append(WriteAheadLog.INSERT, batch, count);
+                        }
+                        break;
+                    }
+                } finally {
+                    this.unlockWrite(lockedAt);
+                }
+
+                // wait until there is room in the array - deletion operations will release permits back to the semaphore
+                this.acquirePermits(needed - reserved);
+                reserved = needed;
             }
         } catch (InterruptedException e) {
-            return -1; // we were unable to put it in the queue
+            // Error handling - hand back permits
+            sizeCheck.release(reserved);
+            return -1;
         }
 
-        // Now attempt to acquire the insertQueueDrain lock so we can drain from the insertQueue and update the actual array
-        boolean ourLock = insertQueueDrainLock.tryLock();
+        // hand back any permits we didn't end up using
+        sizeCheck.release(reserved - added);
+        liveCount.addAndGet(added);
 
-        if (ourLock == false) {
-            return 0; // if we can't acquire the lock exit out of the function - another thread will be taking care of the inserts into the array
-            // Returning 0 is a special value to indiciate it was added to the queue successfully but this thread won't be taking care of the inserts into the array
+        if (sequence != 0) {
+            this.syncLog(log, sequence);
         }
 
-        // If we get here we have obtained the insertQueueDrainLock - enclose remaining code in try / finally for safety
+        return added;
+    }
+
+    // Delete a value from the array "atomically"
+    public void delete(int x) {
+        WriteAheadLog log = this.log;
+        long sequence = 0;
+
+        // acquire global read lock as deletes can occur at the same time as reads and membership checks but not writes or cleanups
+        r.lock();
+
+        // Try / finally block for safety
         try {
+            // Find the index where the value is currently stored
+            int index = findIndex(x);
+            // if it exists clear its occupancy bit to "delete" it - the value itself is left alone
+            // Other deletes hold the read lock too but the bit is cleared atomically - if two threads delete the same value at
+            // once exactly one of them clears it and does the bookkeeping below, the other finds it already gone
+            if (index != -1 && occupied.clear(index)) {
+                liveCount.decrementAndGet();
+
+                // IMPORTANT - we release a permit on the sizeCheck semaphore to unblock any waiting processes that might be waiting to insert a value into a full array
+                // (only if something was actually deleted - otherwise the array could be over filled)
+                sizeCheck.release();
 
-            // We also need to now acquire the globalLock (writeLock) so we can update the array and ensure no other writes are occurring or readers are reading
-            w.lock();
+                // logged while still holding the read lock so an insert of the same value can't be logged before this
+                if (log != null) {
+                    sequence = log.append(WriteAheadLog.DELETE, x);
+                }
+            }
+        } finally {
+            r.unlock();
+        }
+
+        // the fsync is shared with any other deletes (and inserts) happening at the same time
+        if (sequence != 0) {
+            this.syncLog(log, sequence);
+        }
+    }
+
+    // Deletes a batch of values and returns how many were actually in the array
+    // The batch is sorted and then removed in chunks of DELETE_CHUNK keys - each chunk takes the write lock once and walks the array
+    // in a single galloping pass (see gallopTo), and hands back exactly one permit per value removed
+    // Not atomic as a whole - another thread may see some chunks removed and not others
+    public int deleteAll(int[] values) {
+        int[] keys = Arrays.copyOf(values, values.length);
+        int count = sortAndDedupe(keys, keys.length);
 
-            // Try / finally construct recommended to ensure prevention of deadlock
+        WriteAheadLog log = this.log;
+        long sequence = 0;
+        int[] removed = new int[Math.min(count, DELETE_CHUNK)];
+        int total = 0;
+
+        for (int start = 0; start < count; start += DELETE_CHUNK) {
+            int end = Math.min(count, start + DELETE_CHUNK);
+            int chunkRemoved = 0;
+
+            long lockedAt = this.lockWrite();
+
+            // Try / finally block for safety
             try {
+                int position = 0;
 
-                // Drain the insert queue (up to a maximum of 100 integers at one time to prevent starvation of other potential reader threads) and insert into the array
-                for (int i = 0; i < MAX_SIZE; i++) {
-                    // Remove the end of the queue / if it is empty returns null
-                    Object valToInsertO = insertQueue.poll();
+                for (int i = start; i < end; i++) {
+                    position = this.gallopTo(keys[i], position);
 
-                    // If the queue is empty we're done
-                    if (valToInsertO == null) {
-                        break;
+                    if (position < array.length() && array.get(position) == keys[i]) {
+                        occupied.clear(position);
+                        removed[chunkRemoved] = keys[i];
+                        chunkRemoved++;
+                        position++;
                     }
+                }
 
-                    // Cast-type to integer
-                    int valToInsert = (int) valToInsertO;
+                if (log != null && chunkRemoved > 0) {
+                    sequence = log.append(WriteAheadLog.DELETE, removed, chunkRemoved);
+                }
+            } finally {
+                this.unlockWrite(lockedAt);
+            }
 
-                    // do not insert duplicate
-                    if (findIndex(valToInsert) != -1) {
-                        return 1;
-                    }
+            liveCount.addAndGet(-chunkRemoved);
+            sizeCheck.release(chunkRemoved);
+            total += chunkRemoved;
+        }
+
+        // one fsync for the whole batch
+        if (sequence != 0) {
+            this.syncLog(log, sequence);
+        }
+
+        return total;
+    }
+
+    // Deletes every value from "lo" to "hi" (both inclusive) and returns how many there were
+    // The values in the range sit next to each other so each chunk of DELETE_CHUNK slots just has its occupancy bits cleared under the write lock
+    // Not atomic as a whole - a value inserted into the range while this is running may or may not be deleted
+    public int deleteRange(int lo, int hi) {
+        if (lo > hi) {
+            return 0;
+        }
+
+        WriteAheadLog log = this.log;
+        long sequence = 0;
+        int[] removed = log != null ? new int[DELETE_CHUNK] : null;
+        int total = 0;
 
-                    // Now - actually insert the integer into the array
-                    this.insertIntoArray(valToInsert);
+        while (true) {
+            int chunkRemoved;
 
-                    // cleanup
-                    this.forceCleanup(findIndex(valToInsert));
+            long lockedAt = this.lockWrite();
 
+            // Try / finally block for safety
+            try {
+                // everything before the range start found last time has gone so look for it again
+                int from = this.rangeStart(lo);
+                int to = findInsertPosition(hi);
+
+                if (to - from > DELETE_CHUNK) {
+                    to = from + DELETE_CHUNK;
+                }
+
+                chunkRemoved = occupied.cardinality(from, to);
+
+                if (chunkRemoved > 0 && log != null) {
+                    int n = 0;
+                    for (int i = occupied.nextSetBit(from); i != -1 && i < to; i = occupied.nextSetBit(i + 1)) {
+                        removed[n] = array.get(i);
+                        n++;
+                    }
+                    sequence = log.append(WriteAheadLog.DELETE, removed, n);
                 }
 
+                occupied.clearRange(from, to);
             } finally {
-                // release the global write lock allowing readers to read again
-                w.unlock();
+                this.unlockWrite(lockedAt);
             }
 
+            if (chunkRemoved == 0) {
+                break;
+            }
 
-        } finally {
-            // release the insert queue drain lock allowing for insertion operations to occur again
-            insertQueueDrainLock.unlock();
+            liveCount.addAndGet(-chunkRemoved);
+            sizeCheck.release(chunkRemoved);
+            total += chunkRemoved;
         }
 
-        return 1; // special value to indicate success and this thread took care of the inserts into the array
+        if (sequence != 0) {
+            this.syncLog(log, sequence);
+        }
+
+        return total;
     }
 
-    // Delete a value from the array "atomically"
-    public void delete(int x) {
-        // acquire global read lock as deletes can occur at the same time as reads and membership checks but not writes or cleanups
+    // Public getter for testing
+    // A copy of the array with every gap shown as -1 - so a stored -1 looks the same as a gap here (use iterator() to tell them apart)
+    public int[] getArray() {
+        // First acquire global read lock
         r.lock();
 
         // Try / finally block for safety
         try {
-            // Find the index where the value is currently stored
-            int index = findIndex(x);
-            // if it exists set the value to -1 to "delete" it
-            if (index != -1) {
-                array[index] = -1;
+            int[] copy = array.toArray();
+
+            for (int i = 0; i < copy.length; i++) {
+                if (!occupied.get(i)) {
+                    copy[i] = -1;
+                }
             }
-            // IMPORTANT - we release a permit on the sizeCheck semaphore to unblock any waiting processes that might be waiting to insert a value into a full array
-            sizeCheck.release();
+            return copy;
         } finally {
             r.unlock();
         }
     }
 
-    // Public getter for testing
-    public int[] getArray() {
-        return array;
+    // Writes every live value to "path" as a snapshot that load() can restore without going through insert
+    // The values come from a snapshotView, so the write lock is only held while that is taken - reads, inserts and deletes all carry
+    // on while the file is written and none of them are included. Inserts still sitting in the insert queue are not included either
+    // The snapshot is written next to "path" first and moved over it once complete, so an existing snapshot is never left half written
+    // With a write ahead log the log is cut at the moment the view is taken, and once the snapshot is in place the records before the
+    // cut are dropped since it holds everything they did
+    public void snapshot(Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        UNSWArrayView view;
+        int capacity;
+        WriteAheadLog log;
+        long cut = 0;
+
+        long lockedAt = this.lockWrite();
+
+        // Try / finally block for safety
+        try {
+            view = this.freezeView();
+            capacity = array.length();
+
+            // every change is logged while holding the read or write lock, so the records before the cut are exactly the view's
+            log = this.log;
+            if (log != null) {
+                cut = log.cut();
+            }
+        } finally {
+            this.unlockWrite(lockedAt);
+        }
+
+        writeSnapshot(temp, view, capacity);
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        if (log != null) {
+            log.truncateBefore(cut);
+        }
+    }
+
+    // Starts logging every insert and delete to the write ahead log at "path" so they can be recovered after a crash
+    // Anything already in the log is replayed into the array first - so on startup load() the last snapshot, then call this
+    // From then on insert, insertAll and delete only return once their change is on disk (the fsync is shared between all the
+    // operations waiting for one - see WriteAheadLog) and throw an UncheckedIOException if it can't be written
+    // Call before the array is shared with other threads. Returns the number of log records replayed or -1 if a log is already enabled
+    public synchronized int enableWriteAheadLog(Path path) throws IOException {
+        if (log != null) {
+            return -1;
+        }
+
+        WriteAheadLog opened = new WriteAheadLog(path);
+
+        // Inserts and deletes are last-writer-wins for each value, so rather than replaying every record (the array may not have
+        // room for the values in between) work out what the last operation on each value was - sorted by value then by position
+        // in the log, as "value << 32 | position << 1 | inserted"
+        class LastOperations implements WriteAheadLog.Operation {
+            long[] operations = new long[64];
+            int count = 0;
+
+            public void apply(int type, int[] values, int valueCount) {
+                for (int i = 0; i < valueCount; i++) {
+                    if (count == operations.length) {
+                        operations = Arrays.copyOf(operations, count * 2);
+                    }
+                    long tag = ((long) count << 1) | (type == WriteAheadLog.INSERT ? 1 : 0);
+                    operations[count] = ((long) values[i] << 32) | tag;
+                    count++;
+                }
+            }
+        }
+        LastOperations replayed = new LastOperations();
+
+        int records;
+        try {
+            records = opened.replay(replayed);
+        } catch (IOException e) {
+            opened.close();
+            throw e;
+        }
+
+        long[] sorted = replayed.operations;
+        int total = replayed.count;
+        Arrays.sort(sorted, 0, total);
+
+        int[] inserts = new int[total];
+        int insertCount = 0;
+
+        for (int i = 0; i < total; i++) {
+            // only the last operation on each value counts
+            if (i + 1 < total && (sorted[i + 1] >> 32) == (sorted[i] >> 32)) {
+                continue;
+            }
+
+            int value = (int) (sorted[i] >> 32);
+            if ((sorted[i] & 1) != 0) {
+                inserts[insertCount] = value;
+                insertCount++;
+            } else {
+                this.delete(value);
+            }
+        }
+
+        if (insertCount > 0) {
+            this.insertAll(Arrays.copyOf(inserts, insertCount));
+        }
+
+        log = opened;
+        return records;
     }
 
-    // Public facing cleanup function to remove -1 values
-    // Wrapper around mutex forceCleanup function
-    public boolean cleanup() {
-        // First acquire global write lock
-        w.lock();
+    // Stops logging and closes the write ahead log - call once nothing else is using the array
+    public synchronized void disableWriteAheadLog() throws IOException {
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+    }
+
+    // Looks up a batch of values at once - out[i] is set to whether sortedProbes[i] is in the array, and the number found is returned
+    // The read lock is taken once for the whole batch and, as the probes are sorted, each search gallops on from where the last one
+    // ended (see gallopTo) so k probes cost O(k log(n / k)) rather than O(k log n)
+    // If the probes aren't actually sorted the answers are still right - the search just starts again from the beginning whenever a probe
+    // is smaller than the one before
+    public int memberAll(int[] sortedProbes, boolean[] out) {
+        return memberAll(sortedProbes, 0, sortedProbes.length, out);
+    }
+
+    // Same as memberAll(sortedProbes, out) but only for the probes from "from" up to "to" (writing the results to the same indexes of "out")
+    int memberAll(int[] sortedProbes, int from, int to, boolean[] out) {
+        int found = 0;
+
+        // First acquire global read lock
+        r.lock();
 
         // Try / finally block for safety
         try {
-            // Perform a cleanup which requires mutex
-            this.forceCleanup(array.length - 1);
+            int length = array.length();
+
+            // every live value before position is smaller than the current probe
+            int position = 0;
+
+            for (int i = from; i < to; i++) {
+                int probe = sortedProbes[i];
+
+                if (i > from && probe < sortedProbes[i - 1]) {
+                    position = 0;
+                }
+
+                position = this.gallopTo(probe, position);
+
+                out[i] = position < length && array.get(position) == probe;
+                if (out[i]) {
+                    found++;
+                }
+            }
         } finally {
-            w.unlock();
+            r.unlock();
         }
 
-        return true;
+        return found;
     }
 
     // Public facing set membership function
-    // Effectively wraps findIndex and returns true if a positive value is returned and false if -1 is returned
+    // Effectively wraps findIndex and returns true if an index is returned and false if -1 is returned
     public boolean member(int x) {
+        // In optimistic read mode first try without any lock - if no writer held or acquired the write lock while we were searching the
+        // result is valid, otherwise fall back to the read lock below
+        if (stampedLock != null) {
+            long stamp = stampedLock.tryOptimisticRead();
+
+            if (stamp != 0) {
+                int index = findIndex(x);
+
+                if (stampedLock.validate(stamp)) {
+                    return index != -1;
+                }
+            }
+        }
+
         // First acquire global read lock
         r.lock();
 
@@ -253,57 +887,350 @@ public class UNSWArray {
         return returnVal;
     }
 
-    // Public facing print function
-    // Prints out the set of elements in sorted order.
-    public void print_sorted() {
+    // Number of live values from "lo" to "hi" (both inclusive) - O(log n) to find the ends of the range and then a bit count
+    // over the occupancy bitmap in between
+    public int rangeCount(int lo, int hi) {
+        if (lo > hi) {
+            return 0;
+        }
+
         // First acquire global read lock
         r.lock();
 
-        String sortedArray = " ";
+        // Try / finally block for safety
+        try {
+            return occupied.cardinality(this.rangeStart(lo), findInsertPosition(hi));
+        } finally {
+            r.unlock();
+        }
+    }
+
+    // Calls "consumer" with every live value from "lo" to "hi" (both inclusive) in sorted order - O(log n + k)
+    // The read lock is held the whole time so "consumer" must not insert into or clean up this array (it would deadlock)
+    // For long scans that shouldn't hold up writers use iterator(lo, hi) instead
+    public void forEachInRange(int lo, int hi, IntConsumer consumer) {
+        if (lo > hi) {
+            return;
+        }
+
+        // First acquire global read lock
+        r.lock();
 
         // Try / finally block for safety
         try {
-            for (int i = 0; i < array.length; i++) {
-                if (array[i] != -1) {
-                    sortedArray += array[i] + ", ";
+            for (int i = occupied.nextSetBit(this.rangeStart(lo)); i != -1; i = occupied.nextSetBit(i + 1)) {
+                int value = array.get(i);
+
+                if (value > hi) {
+                    break;
                 }
+                consumer.accept(value);
             }
+        } finally {
+            r.unlock();
+        }
+    }
+
+    // Iterates over every live value in sorted order without holding any lock between calls (see UNSWArrayIterator)
+    public PrimitiveIterator.OfInt iterator() {
+        return new UNSWArrayIterator(this, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    // Iterates over the live values from "lo" to "hi" (both inclusive) in sorted order
+    public PrimitiveIterator.OfInt iterator(int lo, int hi) {
+        return new UNSWArrayIterator(this, lo, hi);
+    }
 
+    // Takes a point in time view of the array that can be read (lazily, for as long as needed) without holding any lock, while inserts,
+    // deletes and cleanups carry on - the view holds exactly the values in the array at the moment it was taken
+    // Taking a view only holds the write lock long enough to copy the array's page table and occupancy bits (one bit per slot): the array
+    // is switched over to copy-on-write pages (see CopyOnWriteIntStore) the first time, and after that the first write to each page
+    // following a view copies that page
+    public UNSWArrayView snapshotView() {
+        long lockedAt = this.lockWrite();
+
+        // Try / finally block for safety
+        try {
+            return this.freezeView();
+        } finally {
+            this.unlockWrite(lockedAt);
+        }
+    }
+
+    // Copies the live values from "from" up to "hi" (both inclusive) into "dst" in sorted order, stopping once it is full
+    // Returns how many were copied - used by UNSWArrayIterator to fetch a block at a time
+    int readRange(long from, int hi, int[] dst) {
+        // First acquire global read lock
+        r.lock();
+
+        // Try / finally block for safety
+        try {
+            return this.readRangeLocked(from, hi, dst);
         } finally {
             r.unlock();
         }
+    }
+
+    // The calling function must hold the read lock - see readRange
+    private int readRangeLocked(long from, int hi, int[] dst) {
+        if (from > hi) {
+            return 0;
+        }
+
+        int count = 0;
+
+        for (int i = occupied.nextSetBit(this.rangeStart((int) from)); i != -1 && count < dst.length; i = occupied.nextSetBit(i + 1)) {
+            int value = array.get(i);
+
+            if (value > hi) {
+                break;
+            }
+            dst[count] = value;
+            count++;
+        }
+
+        return count;
+    }
+
+    // Hands every live value to "writer" in sorted order, EXPORT_CHUNK values at a time
+    // If "chunked" the read lock is only held while each chunk is copied out, so a slow writer never holds up inserts and deletes
+    // (weakly consistent like iterator()) - otherwise it is held the whole way through for an exact point in time export
+    private void exportSorted(boolean chunked, ChunkWriter writer) throws IOException {
+        int[] chunk = new int[EXPORT_CHUNK];
+        long from = Integer.MIN_VALUE;
+        boolean first = true;
+
+        if (!chunked) {
+            r.lock();
+        }
+
+        // Try / finally block for safety
+        try {
+            while (true) {
+                int count = chunked ? this.readRange(from, Integer.MAX_VALUE, chunk) : this.readRangeLocked(from, Integer.MAX_VALUE, chunk);
+
+                if (count > 0) {
+                    writer.write(chunk, count, first);
+                    first = false;
+                    from = (long) chunk[count - 1] + 1;
+                }
+                if (count < chunk.length) {
+                    break;
+                }
+            }
+        } finally {
+            if (!chunked) {
+                r.unlock();
+            }
+        }
+    }
+
+    // Appends the values in print_sorted's format - a ", " before every value but the very first one
+    private static void appendText(StringBuilder sb, int[] values, int count, boolean first) {
+        for (int i = 0; i < count; i++) {
+            if (!first || i > 0) {
+                sb.append(", ");
+            }
+            sb.append(values[i]);
+        }
+    }
+
+    // Public facing print function
+    // Prints out the set of elements in sorted order.
+    public void print_sorted() {
+        System.out.print(" ");
+
+        // PrintStream never throws
+        try {
+            this.writeSorted(System.out, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Writes every live value to "out" in sorted order in the same format as print_sorted ("1, 2, 3")
+    // Streams a chunk at a time so memory use doesn't depend on the size of the array, holding the read lock the whole way through so
+    // the output is an exact point in time copy of the array - inserts and deletes wait until it finishes
+    public void writeSorted(Appendable out) throws IOException {
+        this.writeSorted(out, false);
+    }
+
+    // Same as writeSorted(out) - but if "chunked" the read lock is only held while each chunk is copied out, so a slow "out" never
+    // holds up inserts and deletes. The export is then only weakly consistent (like iterator()) - values inserted or deleted while it
+    // runs may or may not be included
+    public void writeSorted(Appendable out, boolean chunked) throws IOException {
+        StringBuilder text = new StringBuilder();
+
+        this.exportSorted(chunked, (values, count, first) -> {
+            text.setLength(0);
+            appendText(text, values, count, first);
+            out.append(text);
+        });
+    }
+
+    // Writes every live value to "channel" in sorted order - as text or as little endian ints (see Format)
+    // Streams a chunk at a time and is an exact point in time copy of the array, like writeSorted(out)
+    public void writeSorted(WritableByteChannel channel, Format format) throws IOException {
+        this.writeSorted(channel, format, false);
+    }
+
+    // Same as writeSorted(channel, format) - "chunked" works the same as in writeSorted(out, chunked)
+    public void writeSorted(WritableByteChannel channel, Format format, boolean chunked) throws IOException {
+        // ", " and up to 11 characters per value in the worst case
+        ByteBuffer bytes = ByteBuffer.allocate(EXPORT_CHUNK * 13).order(ByteOrder.LITTLE_ENDIAN);
+        StringBuilder text = new StringBuilder();
+
+        this.exportSorted(chunked, (values, count, first) -> {
+            bytes.clear();
+
+            if (format == Format.BINARY) {
+                for (int i = 0; i < count; i++) {
+                    bytes.putInt(values[i]);
+                }
+            } else {
+                text.setLength(0);
+                appendText(text, values, count, first);
+                // only digits, '-', ',' and ' ' so every char is a single ASCII byte
+                for (int i = 0; i < text.length(); i++) {
+                    bytes.put((byte) text.charAt(i));
+                }
+            }
+
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        });
+    }
 
-        sortedArray = sortedArray.replaceAll(", $", "");
-        System.out.print(sortedArray);
+    // Appends every live value followed by ", " to "sb" in sorted order - used to print several arrays as one sorted set
+    void appendSorted(StringBuilder sb) {
+        this.forEachInRange(Integer.MIN_VALUE, Integer.MAX_VALUE, value -> sb.append(value).append(", "));
     }
 
     // === Constructors ===
 
     public UNSWArray(int size) {
-        // Initialise the array and metadata
-        this.array = new int[size];
+        this(size, 100); //allow for a maximum of 100 insert operations to be queued at one time by default
+    }
 
-        // Set all values to -1 by default
-        for (int i = 0; i < size; i++) {
-            this.array[i] = -1;
+    // "queueCapacity" is the maximum number of insert operations that can be queued at one time before insert blocks
+    public UNSWArray(int size, int queueCapacity) {
+        this(size, queueCapacity, false);
+    }
+
+    // "optimisticReads" switches the global lock to a StampedLock so member() can read without locking (the lock is then not fair)
+    public UNSWArray(int size, int queueCapacity, boolean optimisticReads) {
+        this(size, queueCapacity, optimisticReads, false);
+    }
+
+    // "offHeap" keeps the array in memory outside the Java heap (see OffHeapIntStore) - for very large sets that would otherwise
+    // mean long garbage collection pauses
+    public UNSWArray(int size, int queueCapacity, boolean optimisticReads, boolean offHeap) {
+        this(size, queueCapacity, optimisticReads, offHeap, false);
+    }
+
+    // "compressed" bit-packs the array in blocks (see PackedIntStore) - for dense keys such as sorted IDs this fits several times more
+    // values in the same memory, at the cost of slower shifting on insert. It can't be combined with "offHeap"
+    public UNSWArray(int size, int queueCapacity, boolean optimisticReads, boolean offHeap, boolean compressed) {
+        this(size, new IntRingBuffer(queueCapacity), optimisticReads, offHeap, compressed);
+    }
+
+    private UNSWArray(int size, IntRingBuffer queue, boolean optimisticReads, boolean offHeap, boolean compressed) {
+        super(size, queue, optimisticReads);
+
+        if (offHeap && compressed) {
+            throw new IllegalArgumentException("offHeap and compressed can't be used together");
         }
 
-        // Initialise the locks
-        globalLock = new ReentrantReadWriteLock(true); //fairness enabled
-        r = globalLock.readLock();
-        w = globalLock.writeLock();
+        // Initialise the array
+        if (offHeap) {
+            this.array = new OffHeapIntStore(size);
+        } else if (compressed) {
+            this.array = new PackedIntStore(size);
+        } else {
+            this.array = new HeapIntStore(size);
+        }
 
-        insertQueueDrainLock = new ReentrantLock(true); //fairness enabled
+        this.queue = queue;
+        this.drained = new int[queue.capacity()];
+    }
+
+    // Restores an array written by snapshot() - the values are copied straight from the mapped file into the end of a new array
+    // with the same capacity, so nothing goes through the insert path
+    // Throws an IOException if "path" is not a snapshot or does not match its checksum
+    public static UNSWArray load(Path path) throws IOException {
+        return load(path, 100, false, false);
+    }
+
+    // Same as load(path) but the new array is created with the given constructor options
+    public static UNSWArray load(Path path, int queueCapacity, boolean optimisticReads, boolean offHeap) throws IOException {
+        return load(path, queueCapacity, optimisticReads, offHeap, false);
+    }
+
+    // Same again with the "compressed" option - the values are bit-packed a block at a time as they are copied in, so a compressed
+    // array comes back just as small as it was
+    public static UNSWArray load(Path path, int queueCapacity, boolean optimisticReads, boolean offHeap, boolean compressed)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < SNAPSHOT_HEADER) {
+                throw new IOException("Not an UNSWArray snapshot: " + path);
+            }
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, SNAPSHOT_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            int magic = header.getInt();
+            int version = header.getInt();
+            int count = header.getInt();
+            int capacity = header.getInt();
+            long expectedChecksum = header.getLong();
+
+            if (magic != SNAPSHOT_MAGIC || version != SNAPSHOT_VERSION) {
+                throw new IOException("Not an UNSWArray snapshot: " + path);
+            }
+            if (count < 0 || count > capacity || channel.size() != SNAPSHOT_HEADER + 4L * count) {
+                throw new IOException("Corrupt UNSWArray snapshot (bad header): " + path);
+            }
 
-        // Initailise the insert queue
-        insertQueue = new ArrayBlockingQueue<>(100, true); //allow for a maximum of 100 insert operations to be queued at one time
+            UNSWArray loaded = new UNSWArray(capacity, queueCapacity, optimisticReads, offHeap, compressed);
+            CRC32 checksum = new CRC32();
+            int[] block = new int[Math.min(SNAPSHOT_BLOCK, Math.max(1, count))];
+            long previous = Long.MIN_VALUE;
 
-        // Initialise the sizeCheck semaphore - ensuring that it is fair and provies "size" number of permits
-        sizeCheck = new Semaphore(size, true);
+            // the values go at the end of the array - just like after a cleanup
+            for (int done = 0; done < count; ) {
+                int n = Math.min(block.length, count - done);
+
+                ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, SNAPSHOT_HEADER + 4L * done, 4L * n);
+                checksum.update(in.duplicate());
+                in.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(block, 0, n);
+
+                // the array relies on its values being sorted
+                for (int i = 0; i < n; i++) {
+                    if (block[i] <= previous) {
+                        throw new IOException("Corrupt UNSWArray snapshot (values out of order): " + path);
+                    }
+                    previous = block[i];
+                }
+
+                loaded.array.write(capacity - count + done, block, 0, n);
+                done += n;
+            }
+
+            if (checksum.getValue() != expectedChecksum) {
+                throw new IOException("Corrupt UNSWArray snapshot (checksum mismatch): " + path);
+            }
+
+            loaded.occupied.setRange(capacity - count, capacity);
+            loaded.liveCount.set(count);
+            // no one else can see the array yet so this never waits
+            loaded.sizeCheck.acquireUninterruptibly(count);
+
+            return loaded;
+        }
     }
 
     // This is for testing purposes only at this stage
     public void printArray() {
-        System.out.println(Arrays.toString(this.array));
+        System.out.println(Arrays.toString(this.getArray()));
     }
 }
\ No newline at end of file
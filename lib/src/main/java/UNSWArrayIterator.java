@@ -0,0 +1,70 @@
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+// Iterates over the live values of an UNSWArray between two bounds in sorted order - see UNSWArray.iterator
+// No lock is held between calls: values are fetched a block at a time under the read lock, and each block starts just after the
+// last value returned, so the iterator never blocks writers for long and never returns a value twice even if the array changes
+// Weakly consistent - every value returned was in the array at some point during the iteration, and values inserted or deleted
+// while iterating may or may not be seen
+public class UNSWArrayIterator implements PrimitiveIterator.OfInt {
+    // === Class Attributes ===
+
+    // Number of values fetched under each read lock acquisition
+    private static final int BLOCK = 256;
+
+    private final UNSWArray array;
+    private final int hi;
+
+    // The next block is fetched from the first value at or after "from" - a long so it can go past Integer.MAX_VALUE at the end
+    private long from;
+
+    private final int[] block;
+    private int position;
+    private int count;
+
+    // Set once a block comes back short - there is nothing after it
+    private boolean exhausted;
+
+    // === Public Methods ===
+
+    public boolean hasNext() {
+        if (position < count) {
+            return true;
+        }
+
+        if (exhausted) {
+            return false;
+        }
+
+        count = array.readRange(from, hi, block);
+        position = 0;
+
+        if (count < block.length) {
+            exhausted = true;
+        }
+        if (count > 0) {
+            from = (long) block[count - 1] + 1;
+        }
+
+        return count > 0;
+    }
+
+    public int nextInt() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        int value = block[position];
+        position++;
+        return value;
+    }
+
+    // === Constructors ===
+
+    UNSWArrayIterator(UNSWArray array, int lo, int hi) {
+        this.array = array;
+        this.hi = hi;
+        this.from = lo;
+        this.block = new int[BLOCK];
+    }
+}
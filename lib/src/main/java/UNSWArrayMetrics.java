@@ -0,0 +1,117 @@
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Occupancy and contention metrics for one UNSWArray (or LongUNSWArray) - get it with getMetrics()
+// Gauges (live / tombstone counts, queue depth, free permits) are read from the array when asked for
+// Histograms are recorded by the array as it runs: sizes of insert queue drains, how long the write lock is held each time and how long
+// inserts wait on the sizeCheck semaphore when the array is full
+public class UNSWArrayMetrics implements UNSWArrayMetricsMBean {
+    // === Class Attributes ===
+
+    private final AbstractUNSWArray array;
+
+    final LogHistogram drainBatches = new LogHistogram();
+    final LogHistogram writeLockHold = new LogHistogram();
+    final LogHistogram permitWait = new LogHistogram();
+
+    // === Public Methods ===
+
+    public int getCapacity() {
+        return array.getCapacity();
+    }
+
+    public int getLiveCount() {
+        return array.getLiveCount();
+    }
+
+    public int getTombstoneCount() {
+        return array.getTombstoneCount();
+    }
+
+    public int getFreePermits() {
+        return array.getFreePermits();
+    }
+
+    public int getQueueDepth() {
+        return array.getQueueDepth();
+    }
+
+    public long getDrainCount() {
+        return drainBatches.getCount();
+    }
+
+    public double getMeanDrainBatch() {
+        return drainBatches.getMean();
+    }
+
+    public long getMaxDrainBatch() {
+        return drainBatches.getMax();
+    }
+
+    public long getWriteLockHoldCount() {
+        return writeLockHold.getCount();
+    }
+
+    public long getWriteLockHoldP50() {
+        return writeLockHold.getPercentile(50);
+    }
+
+    public long getWriteLockHoldP99() {
+        return writeLockHold.getPercentile(99);
+    }
+
+    public long getWriteLockHoldMax() {
+        return writeLockHold.getMax();
+    }
+
+    public long getPermitWaitCount() {
+        return permitWait.getCount();
+    }
+
+    public long getPermitWaitP99() {
+        return permitWait.getPercentile(99);
+    }
+
+    public long getPermitWaitMax() {
+        return permitWait.getMax();
+    }
+
+    // Full histograms for anything the getters above don't cover
+    public LogHistogram getDrainBatches() {
+        return drainBatches;
+    }
+
+    public LogHistogram getWriteLockHold() {
+        return writeLockHold;
+    }
+
+    public LogHistogram getPermitWait() {
+        return permitWait;
+    }
+
+    // Clears the histograms (the gauges always reflect the array as it is now)
+    public void reset() {
+        drainBatches.reset();
+        writeLockHold.reset();
+        permitWait.reset();
+    }
+
+    // Registers these metrics with the platform MBean server under "name" (eg "assignment1:type=UNSWArray,name=users")
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName(name);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    public void unregister(ObjectName objectName) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    }
+
+    // === Constructors ===
+
+    UNSWArrayMetrics(AbstractUNSWArray array) {
+        this.array = array;
+    }
+}
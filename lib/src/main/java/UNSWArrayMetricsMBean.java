@@ -0,0 +1,28 @@
+// JMX view of UNSWArrayMetrics - see UNSWArrayMetrics.register
+// All times are in nanoseconds
+public interface UNSWArrayMetricsMBean {
+    // === Occupancy ===
+    int getCapacity();
+    int getLiveCount();
+    int getTombstoneCount();
+    int getFreePermits();
+    int getQueueDepth();
+
+    // === Insert queue drains ===
+    long getDrainCount();
+    double getMeanDrainBatch();
+    long getMaxDrainBatch();
+
+    // === Write lock hold times ===
+    long getWriteLockHoldCount();
+    long getWriteLockHoldP50();
+    long getWriteLockHoldP99();
+    long getWriteLockHoldMax();
+
+    // === sizeCheck semaphore waits (only acquisitions that actually had to block) ===
+    long getPermitWaitCount();
+    long getPermitWaitP99();
+    long getPermitWaitMax();
+
+    void reset();
+}
@@ -2,6 +2,7 @@ import java.util.concurrent.locks.*;
 import java.util.Arrays;
 
 // Note: this is a simplified test version which locks the entire array (very inefficient)
+// The array only ever holds the values in the set (every insert and delete copies it) so any int can be stored
 
 public class UNSWArraySimple {
     private int[] array;
@@ -29,11 +30,11 @@ public class UNSWArraySimple {
                 array = new int[] {x};
             } else {
                 int index = Arrays.binarySearch(array, x);
-                if (index < 0) {
-                    index = -index - 1; // Arrays.binarySearch() returns negative value of where index should be
+                if (index >= 0) {
+                    return; // already in the set
                 }
+                index = -index - 1; // Arrays.binarySearch() returns negative value of where index should be
                 shiftArray(index, x);
-                forceCleanup(index);
             }
         } finally {
             lock.writeLock().unlock();
@@ -51,7 +52,7 @@ public class UNSWArraySimple {
                 if (index < 0) {
                     return;
                 }
-                array[index] = -1;
+                removeIndex(index);
             }
         } finally {
             lock.writeLock().unlock();
@@ -84,9 +85,7 @@ public class UNSWArraySimple {
             lock.readLock().lock();
 
             for (int i = 0; i < array.length; i++) {
-                if (array[i] != -1) {
-                    sortedArray += array[i] + ", ";
-                }
+                sortedArray += array[i] + ", ";
             }
 
         } finally {
@@ -98,33 +97,9 @@ public class UNSWArraySimple {
     }
 
     private int findIndex(int x) {
-        int low = 0;
-        int high = array.length - 1;
-
-        while (low <= high) {
-            int mid = low + (high - low) / 2;
-
-            // skip all negative values
-            while (array[mid] == -1 && mid < high) {
-                mid++;
-            }
-
-            if (mid > high) {
-                return -1;
-            }
-
-            // return index of element
-            if (array[mid] == x) {
-                return mid;
-
-            } else if (array[mid] < x) {
-                low = mid + 1;
-            } else {
-                high = mid - 1;
-            }
-        }
+        int index = Arrays.binarySearch(array, x);
         // if element does not exist
-        return -1;
+        return index < 0 ? -1 : index;
     }
 
     private void shiftArray(int index, int value) {
@@ -137,28 +112,12 @@ public class UNSWArraySimple {
         array[index] = value;
     }
 
-    private void forceCleanup(int upTo) {
-        if (upTo <= 0) {
-            return; // don't do anything
-        } else {
-            // read down from index upTo to index 0 and put all non -1 values immediately before index upTo
-            int editIndex = upTo;
-
-            for (int readIndex = upTo; readIndex > 0; readIndex--) {
-                if (array[readIndex] != -1) {
-                    array[editIndex] = array[readIndex];
-                    editIndex--;
-                }
-            }
-            if (editIndex <= 0) return;
-
-            // populate beginning of array with all the -1 values
-            else {
-                for (int i = 0; i <= editIndex; i++) {
-                    array[i] = -1;
-                }
-            }
-        }
+    private void removeIndex(int index) {
+        // make copy of array -1 length without the value at index
+        int[] removed = new int[array.length - 1];
+        System.arraycopy(array, 0, removed, 0, index);
+        System.arraycopy(array, index + 1, removed, index, array.length - index - 1);
+        array = removed;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,62 @@
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+// A read only, point in time view of an UNSWArray - see UNSWArray.snapshotView
+// It holds on to the frozen pages of the array (see CopyOnWriteIntStore) and a copy of its occupancy bits so it reflects exactly the
+// values that were in the array when it was taken, no matter what happens to the array afterwards, and reading it never takes any lock
+public class UNSWArrayView {
+    // === Class Attributes ===
+
+    private final IntStore[] pages;
+
+    // Which slots were live when the view was taken - bit i of words[i / 64] for slot i (see OccupancyBitmap)
+    private final long[] words;
+
+    private final int size;
+
+    // === Public Methods ===
+
+    // Number of values in the view
+    public int size() {
+        return size;
+    }
+
+    // Iterates over the values in sorted order - a word of occupancy bits at a time, skipping the gaps
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            int word = 0;
+            long bits = words.length > 0 ? words[0] : 0;
+
+            public boolean hasNext() {
+                while (bits == 0) {
+                    word++;
+                    if (word >= words.length) {
+                        return false;
+                    }
+                    bits = words[word];
+                }
+                return true;
+            }
+
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                // clear the lowest set bit
+                bits &= bits - 1;
+
+                return pages[index >>> CopyOnWriteIntStore.PAGE_SHIFT].get(index & CopyOnWriteIntStore.PAGE_MASK);
+            }
+        };
+    }
+
+    // === Constructors ===
+
+    UNSWArrayView(IntStore[] pages, long[] words, int size) {
+        this.pages = pages;
+        this.words = words;
+        this.size = size;
+    }
+}
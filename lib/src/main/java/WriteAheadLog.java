@@ -0,0 +1,359 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// An append only log of the inserts and deletes applied to an UNSWArray so they survive a crash between snapshots
+// (see UNSWArray.enableWriteAheadLog)
+// append() only adds a record to an in memory buffer - sync() makes everything appended so far durable with a single
+// FileChannel.write and force. Threads that call sync() while another thread is already forcing wait for it, and then one of them
+// writes out everything appended in the meantime, so any number of concurrent operations share each fsync (group commit)
+//
+// Record layout (little endian): type (int), count (int), "count" values (int each), CRC32 of the type, count and values (int)
+// A crash can leave a torn record at the end of the file - replay() stops at the first record that is incomplete or fails its
+// checksum and cuts the file off there
+public class WriteAheadLog implements Closeable {
+    // === Class Attributes ===
+
+    static final int INSERT = 1;
+    static final int DELETE = 2;
+
+    // type, count and checksum
+    private static final int RECORD_OVERHEAD = 12;
+
+    // Guards everything below except spare - a Lock rather than a monitor so a virtual thread (Java 21+) waiting in sync() never pins
+    // its carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition synced = lock.newCondition();
+
+    // Records appended since the last write - guarded by lock
+    private ByteBuffer pending;
+
+    // The buffer the syncing thread is writing out, handed back once it is done - only ever touched by whoever is syncing
+    private ByteBuffer spare;
+
+    // Sequence numbers - every record appended gets the next one, and every record up to "durable" has been forced to disk
+    private long appended;
+    private long durable;
+
+    // Offsets into everything ever appended to the log (see cut) - "dropped" is where the file currently starts and "end" is just past
+    // the last record appended, so the file holds [dropped, dropped + size) and pending the rest up to "end"
+    private long dropped;
+    private long end;
+
+    // True while a thread is writing and forcing a batch
+    private boolean syncing;
+
+    // Once a write or force fails we can't tell what made it to disk so the log refuses to sync ever again
+    private IOException failure;
+
+    private final CRC32 checksum;
+    private final Path path;
+
+    // Replaced by truncateBefore - only while holding lock and with no sync running
+    private FileChannel channel;
+
+    // Receives each operation read back by replay()
+    public interface Operation {
+        void apply(int type, int[] values, int count);
+    }
+
+    // === Private Helper Functions ===
+
+    // The calling function must hold lock - makes sure "bytes" more bytes fit in pending
+    private void ensureCapacity(int bytes) {
+        if (pending.remaining() < bytes) {
+            int capacity = Math.max(pending.capacity() * 2, pending.position() + bytes);
+            ByteBuffer grown = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+    }
+
+    // The calling function must hold lock - finishes off the record started at "start"
+    private long finishRecord(int start) {
+        checksum.reset();
+        checksum.update(pending.array(), start, pending.position() - start);
+        pending.putInt((int) checksum.getValue());
+
+        end += pending.position() - start;
+        appended++;
+        return appended;
+    }
+
+    private void readFully(ByteBuffer dst, long position) throws IOException {
+        while (dst.hasRemaining()) {
+            int read = channel.read(dst, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of write ahead log");
+            }
+            position += read;
+        }
+    }
+
+    // === Public Methods ===
+
+    // Appends a record of the first "count" values and returns its sequence number for sync()
+    public long append(int type, int[] values, int count) {
+        lock.lock();
+        try {
+            ensureCapacity(RECORD_OVERHEAD + 4 * count);
+
+            int start = pending.position();
+            pending.putInt(type).putInt(count);
+            for (int i = 0; i < count; i++) {
+                pending.putInt(values[i]);
+            }
+
+            return finishRecord(start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Appends a record of a single value - saves callers allocating an array
+    public long append(int type, int value) {
+        lock.lock();
+        try {
+            ensureCapacity(RECORD_OVERHEAD + 4);
+
+            int start = pending.position();
+            pending.putInt(type).putInt(1).putInt(value);
+
+            return finishRecord(start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Blocks until the record with sequence number "sequence" (and so every record before it) is on disk
+    // Throws an IOException if that can't be done - and for every later call too
+    public void sync(long sequence) throws IOException {
+        ByteBuffer batch;
+        long upTo;
+        FileChannel out;
+
+        lock.lock();
+        try {
+            boolean interrupted = false;
+
+            // wait for whoever is syncing now - their batch might already include our record
+            while (failure == null && durable < sequence && syncing) {
+                try {
+                    synced.await();
+                } catch (InterruptedException e) {
+                    // the record still has to be made durable - remember the interrupt for later
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (failure != null) {
+                throw new IOException("Write ahead log failed earlier", failure);
+            }
+            if (durable >= sequence) {
+                return;
+            }
+
+            // our turn to write everything appended so far
+            syncing = true;
+            batch = pending;
+            pending = spare;
+            upTo = appended;
+            out = channel;
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            batch.flip();
+            while (batch.hasRemaining()) {
+                out.write(batch);
+            }
+            out.force(false);
+        } catch (IOException e) {
+            lock.lock();
+            try {
+                failure = e;
+                syncing = false;
+                synced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+
+        lock.lock();
+        try {
+            batch.clear();
+            spare = batch;
+            durable = upTo;
+            syncing = false;
+            synced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Reads every complete record in the log, oldest first, and hands it to "operation" - returning how many records there were
+    // Must be called before anything is appended. Anything after the last complete record (a torn write) is cut off
+    public int replay(Operation operation) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        int records = 0;
+
+        ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer record = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+        int[] values = new int[16];
+
+        while (size - position >= RECORD_OVERHEAD) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+
+            int type = header.getInt();
+            int count = header.getInt();
+
+            if ((type != INSERT && type != DELETE) || count < 0 || RECORD_OVERHEAD + 4L * count > size - position) {
+                break;
+            }
+
+            int length = RECORD_OVERHEAD + 4 * count;
+            if (record.capacity() < length) {
+                record = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            record.clear().limit(length);
+            readFully(record, position);
+
+            checksum.reset();
+            checksum.update(record.array(), 0, length - 4);
+            if (record.getInt(length - 4) != (int) checksum.getValue()) {
+                break;
+            }
+
+            if (values.length < count) {
+                values = new int[count];
+            }
+            record.position(8);
+            for (int i = 0; i < count; i++) {
+                values[i] = record.getInt();
+            }
+
+            operation.apply(type, values, count);
+            position += length;
+            records++;
+        }
+
+        // drop the torn tail so new records follow straight on from the last good one
+        channel.truncate(position);
+        channel.position(position);
+        end = position;
+
+        return records;
+    }
+
+    // The point in the log just after every record appended so far - pass it to truncateBefore once a snapshot holds everything those
+    // records did
+    public long cut() {
+        lock.lock();
+        try {
+            return end;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Throws away every record before "cut" (from an earlier cut()) - used once a snapshot has made them redundant
+    // The records after the cut are copied into a new file which is then moved over the log, so a crash part way through leaves either
+    // the old log or the new one - and replaying records a snapshot already holds does no harm (see UNSWArray.enableWriteAheadLog)
+    // Records before the cut that were appended but not yet synced are dropped as well (the snapshot includes them)
+    // Appends wait while the records after the cut are copied - only what was appended since the cut, so not for long
+    public void truncateBefore(long cut) throws IOException {
+        lock.lock();
+        try {
+            boolean interrupted = false;
+
+            while (syncing) {
+                try {
+                    synced.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+            // a later cut has already been dropped
+            if (cut <= dropped) {
+                return;
+            }
+
+            long size = channel.size();
+            long fileEnd = dropped + size;
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+            try (FileChannel kept = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                for (long position = Math.max(0, cut - dropped); position < size; ) {
+                    position += channel.transferTo(position, size - position, kept);
+                }
+                kept.force(true);
+            }
+
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // the cut falls inside the records still waiting to be written
+            if (cut > fileEnd) {
+                pending.flip();
+                pending.position((int) (cut - fileEnd));
+                pending.compact();
+            }
+
+            try {
+                channel.close();
+                channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channel.position(channel.size());
+            } catch (IOException e) {
+                // nowhere left to write records - every later sync fails with this
+                failure = e;
+                throw e;
+            }
+
+            dropped = cut;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // === Constructors ===
+
+    // Opens (or creates) the log at "path" - call replay() before appending to apply and keep whatever is already in it
+    public WriteAheadLog(Path path) throws IOException {
+        this.path = path;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        end = channel.size();
+
+        pending = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        spare = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        checksum = new CRC32();
+    }
+}
@@ -2,6 +2,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.jupiter.api.Test;
 
@@ -20,7 +21,7 @@ public class TestCleanup2 {
         Thread thread2 = new Thread(() -> {
             try {
                 // allow all inserts first
-                Thread.sleep(10);
+                Thread.sleep(50);
             } catch (InterruptedException e) {
 
             }
@@ -74,7 +75,7 @@ public class TestCleanup2 {
         Thread thread2 = new Thread(() -> {
             try {
                 // allow all inserts first
-                Thread.sleep(10);
+                Thread.sleep(50);
             } catch (InterruptedException e) {
 
             }
@@ -109,7 +110,8 @@ public class TestCleanup2 {
 
         }
 
-        int[] expected = {-1, -1, -1, -1, 1, 3, 5, 6, -1, 7, 9};
+        // inserting only fills the nearest gap - the remaining -1 values are left for cleanup
+        int[] expected = {-1, -1, 1, -1, 3, -1, 5, 6, 7, -1, 9};
         assertEquals(Arrays.toString(expected), Arrays.toString(a1.getArray()));
     }
 
@@ -127,7 +129,7 @@ public class TestCleanup2 {
         Thread thread2 = new Thread(() -> {
             try {
                 // allow all inserts first
-                Thread.sleep(10);
+                Thread.sleep(50);
             } catch (InterruptedException e) {
 
             }
@@ -162,7 +164,61 @@ public class TestCleanup2 {
 
         }
 
-        int[] expected = {-1, -1, -1, -1, -1, 1, 3, 5, 7, 9, 11};
+        // inserting only fills the nearest gap - the remaining -1 values are left for cleanup
+        int[] expected = {-1, -1, 1, -1, 3, -1, 5, -1, 7, 9, 11};
+        assertEquals(Arrays.toString(expected), Arrays.toString(a1.getArray()));
+    }
+
+    @Test
+    public void testBackgroundCompaction() throws InterruptedException {
+        UNSWArray a1 = new UNSWArray(1000);
+
+        int[] values = new int[1000];
+        for (int i = 0; i < 1000; i++) {
+            values[i] = i;
+        }
+        a1.insertAll(values);
+
+        // delete the odd numbers while checking the even numbers are never missing - first while the deletes run and then while the
+        // compactor moves values
+        // The compactor only starts once the deletes are done - a pass that finished before the last few deletes would rightly leave
+        // them behind as fewer tombstones than the threshold
+        AtomicBoolean compacted = new AtomicBoolean();
+
+        Thread thread1 = new Thread(() -> {
+            for (int i = 1; i < 1000; i += 2) {
+                a1.delete(i);
+            }
+        });
+
+        Thread thread2 = new Thread(() -> {
+            do {
+                for (int i = 0; i < 1000; i += 2) {
+                    assertTrue(a1.member(i));
+                }
+            } while (!compacted.get());
+        });
+
+        thread1.start();
+        thread2.start();
+
+        thread1.join();
+        a1.startCompactor(0.1, 16, 1);
+
+        // give the compactor time to finish its pass
+        int[] expected = new int[1000];
+        for (int i = 0; i < 1000; i++) {
+            expected[i] = i < 500 ? -1 : (i - 500) * 2;
+        }
+
+        for (int wait = 0; wait < 100 && !Arrays.equals(expected, a1.getArray()); wait++) {
+            Thread.sleep(10);
+        }
+
+        compacted.set(true);
+        thread2.join();
+        a1.stopCompactor();
+
         assertEquals(Arrays.toString(expected), Arrays.toString(a1.getArray()));
     }
 
@@ -0,0 +1,169 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TestCompressed {
+
+    @Test
+    public void testMatchesUncompressed() {
+        UNSWArray plain = new UNSWArray(5000, 100, false, false);
+        UNSWArray packed = new UNSWArray(5000, 100, true, false, true);
+
+        // dense IDs, then a few scattered ones far away that force blocks to widen
+        int[] ids = new int[3000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 1000000 + i * 3;
+        }
+        assertEquals(3000, plain.insertAll(ids));
+        assertEquals(3000, packed.insertAll(ids));
+
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            int x = random.nextInt(4) == 0 ? random.nextInt() : 1000000 + random.nextInt(12000);
+            if (random.nextBoolean()) {
+                assertEquals(plain.insert(x), packed.insert(x));
+            } else {
+                plain.delete(x);
+                packed.delete(x);
+            }
+        }
+
+        UNSWArrayView view = packed.snapshotView();
+        packed.cleanup();
+        plain.cleanup();
+
+        assertArrayEquals(plain.getArray(), packed.getArray());
+        assertEquals(plain.getLiveCount(), packed.getLiveCount());
+        assertEquals(plain.getLiveCount(), view.size());
+        assertEquals(plain.rangeCount(1000000, 1006000), packed.rangeCount(1000000, 1006000));
+        for (int x = 999990; x < 1012010; x++) {
+            assertEquals(plain.member(x), packed.member(x));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new UNSWArray(10, 100, false, true, true));
+    }
+
+    @Test
+    public void testDenseIdsFourTimesSmaller() {
+        // gaps of 1 to 3 between the IDs
+        int n = 1 << 20;
+        int[] ids = new int[n];
+        Random random = new Random(11);
+        for (int i = 1; i < n; i++) {
+            ids[i] = ids[i - 1] + 1 + random.nextInt(3);
+        }
+
+        PackedIntStore store = new PackedIntStore(n);
+        store.write(0, ids, 0, n);
+
+        assertTrue(store.sizeInBytes() * 4 < 4L * n);
+        for (int i = 0; i < n; i++) {
+            assertEquals(ids[i], store.get(i));
+        }
+
+        // shifting everything one place to open a gap (what an insert does) keeps the values and the size
+        store.copy(1, 0, n - 1);
+        store.trim(0);
+        for (int i = 0; i < n - 1; i++) {
+            assertEquals(ids[i + 1], store.get(i));
+        }
+        assertTrue(store.sizeInBytes() * 4 < 4L * n);
+    }
+
+    @Test
+    public void testTrimCopyOnWritePages() {
+        int n = 4 * CopyOnWriteIntStore.PAGE_SIZE;
+        CopyOnWriteIntStore store = new CopyOnWriteIntStore(new PackedIntStore(n));
+
+        // scattered values widen every block to 32 bits, and dense IDs written over them one at a time leave the blocks that wide
+        Random random = new Random(13);
+        for (int i = 0; i < n; i++) {
+            store.set(i, random.nextInt());
+        }
+        IntStore[] frozen = store.freeze();
+        for (int i = 0; i < n; i++) {
+            store.set(i, 1000 + 2 * i);
+        }
+
+        // the first page is all gaps
+        store.trim(CopyOnWriteIntStore.PAGE_SIZE);
+
+        long bytes = 0;
+        for (IntStore page : store.freeze()) {
+            bytes += ((PackedIntStore) page).sizeInBytes();
+        }
+        assertTrue(bytes * 4 < 4L * n);
+        for (int i = CopyOnWriteIntStore.PAGE_SIZE; i < n; i++) {
+            assertEquals(1000 + 2 * i, store.get(i));
+        }
+
+        // pages shared with a frozen view are never touched
+        random = new Random(13);
+        for (int i = 0; i < n; i++) {
+            assertEquals(random.nextInt(), frozen[i >>> CopyOnWriteIntStore.PAGE_SHIFT].get(i & CopyOnWriteIntStore.PAGE_MASK));
+        }
+    }
+
+    @Test
+    public void testOptimisticReadsWhileWriting() throws InterruptedException {
+        // member() reads the packed blocks without any lock while inserts shift values, blocks are re-packed and cleanup trims
+        UNSWArray a1 = new UNSWArray(20000, 100, true, false, true);
+        int[] evens = new int[5000];
+        for (int i = 0; i < evens.length; i++) {
+            evens[i] = 2 * i;
+        }
+        a1.insertAll(evens);
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicBoolean wrong = new AtomicBoolean();
+
+        // the odd values (and some far away ones that widen blocks) come and go while the evens are always there
+        Thread writer = new Thread(() -> {
+            Random random = new Random(17);
+            for (int i = 0; i < 20000; i++) {
+                int x = random.nextInt(5) == 0 ? 1000000 + random.nextInt(1000) : 2 * random.nextInt(5000) + 1;
+                if (random.nextBoolean()) {
+                    a1.insert(x);
+                } else {
+                    a1.delete(x);
+                }
+                if (i % 2000 == 0) {
+                    a1.cleanup();
+                }
+            }
+            done.set(true);
+        });
+
+        Thread[] readers = new Thread[3];
+        for (int t = 0; t < readers.length; t++) {
+            final int seed = t;
+            readers[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                while (!done.get()) {
+                    int x = 2 * random.nextInt(5000);
+                    if (!a1.member(x) || a1.member(-x - 1)) {
+                        wrong.set(true);
+                    }
+                }
+            });
+            readers[t].start();
+        }
+        writer.start();
+
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertTrue(!wrong.get());
+        for (int i = 0; i < evens.length; i++) {
+            assertTrue(a1.member(evens[i]));
+        }
+    }
+
+}
@@ -367,4 +367,123 @@ public class TestDelete2 {
         a1.print_sorted();
     }
 
+    @Test
+    public void testDeleteMissingElement() throws InterruptedException {
+        UNSWArray a1 = new UNSWArray(3);
+
+        a1.insert(1);
+        a1.insert(2);
+        a1.insert(3);
+
+        // nothing is deleted so no room must be handed out - otherwise a fourth insert would overfill the array
+        a1.delete(7);
+        a1.delete(7);
+        assertEquals(0, a1.getMetrics().getFreePermits());
+
+        a1.delete(2);
+        assertEquals(1, a1.getMetrics().getFreePermits());
+
+        int[] expected = {1, -1, 3};
+        assertEquals(Arrays.toString(expected), Arrays.toString(a1.getArray()));
+    }
+
+    @Test
+    public void testDeleteAllAndRange() throws InterruptedException {
+        UNSWArray a1 = new UNSWArray(20);
+
+        int[] values = new int[20];
+        for (int i = 0; i < 20; i++) {
+            values[i] = i;
+        }
+        a1.insertAll(values);
+
+        // unsorted with duplicates and values that aren't there - only the 4 present values count
+        assertEquals(4, a1.deleteAll(new int[] {7, 3, 25, 3, 11, -4, 0}));
+        assertEquals(4, a1.getMetrics().getFreePermits());
+
+        // 2 and 4-6 are still there, 3 has already gone
+        assertEquals(4, a1.deleteRange(2, 6));
+        assertEquals(0, a1.deleteRange(2, 6));
+        assertEquals(8, a1.getMetrics().getFreePermits());
+
+        int[] expected = {-1, 1, -1, -1, -1, -1, -1, -1, 8, 9, 10, -1, 12, 13, 14, 15, 16, 17, 18, 19};
+        assertEquals(Arrays.toString(expected), Arrays.toString(a1.getArray()));
+
+        // the whole range of ints
+        assertEquals(12, a1.deleteRange(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(20, a1.getMetrics().getFreePermits());
+    }
+
+    @Test
+    public void testDeleteAllMultithread() throws InterruptedException {
+        UNSWArray a1 = new UNSWArray(100000);
+
+        int[] values = new int[100000];
+        for (int i = 0; i < 100000; i++) {
+            values[i] = i;
+        }
+        a1.insertAll(values);
+
+        // two threads purging overlapping halves (more keys than one chunk each) while a third deletes one at a time
+        int[] evens = new int[50000];
+        int[] firstHalf = new int[50000];
+        for (int i = 0; i < 50000; i++) {
+            evens[i] = i * 2;
+            firstHalf[i] = i;
+        }
+
+        int[] removed = new int[3];
+        Thread thread1 = new Thread(() -> removed[0] = a1.deleteAll(evens));
+        Thread thread2 = new Thread(() -> removed[1] = a1.deleteAll(firstHalf));
+        Thread thread3 = new Thread(() -> {
+            for (int i = 99999; i > 90000; i -= 2) {
+                a1.delete(i);
+            }
+        });
+
+        thread1.start();
+        thread2.start();
+        thread3.start();
+        thread1.join();
+        thread2.join();
+        thread3.join();
+
+        // 25000 values are in both batches but each one is only removed (and its permit released) once
+        assertEquals(75000, removed[0] + removed[1]);
+        assertEquals(75000 + 5000, a1.getMetrics().getFreePermits());
+        assertEquals(20000, a1.getMetrics().getLiveCount());
+    }
+
+    @Test
+    public void testDeleteSameValueMultithread() throws InterruptedException {
+        UNSWArray a1 = new UNSWArray(20000);
+
+        int[] values = new int[20000];
+        for (int i = 0; i < 20000; i++) {
+            values[i] = i;
+        }
+        a1.insertAll(values);
+
+        // four threads all deleting the same values at the same time - only one delete of each value may count
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20000; i += 2) {
+                    a1.delete(i);
+                }
+            });
+            threads[t].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(10000, a1.getMetrics().getFreePermits());
+        assertEquals(10000, a1.getMetrics().getLiveCount());
+        for (int i = 0; i < 20000; i++) {
+            assertEquals(i % 2 == 1, a1.member(i));
+        }
+    }
+
 }
@@ -1,7 +1,14 @@
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 public class TestInsert2 {
 
@@ -201,4 +208,364 @@ public class TestInsert2 {
         a1.print_sorted();
     }
 
+    @Test
+    public void testInsertAllOverlappingBatches() throws InterruptedException {
+        UNSWArray a1 = new UNSWArray(10);
+        int[] added = new int[2];
+
+        Thread thread1 = new Thread(() -> {
+            added[0] = a1.insertAll(new int[] {8, 0, 4, 2, 6, 6});
+        });
+
+        Thread thread2 = new Thread(() -> {
+            added[1] = a1.insertAll(new int[] {9, 7, 5, 3, 1, 0});
+        });
+
+        thread1.start();
+        thread2.start();
+
+        try {
+            thread1.join();
+            thread2.join();
+        } catch (InterruptedException e) {
+
+        }
+
+        // 0 is in both batches but must only be added once
+        assertEquals(10, added[0] + added[1]);
+
+        int[] expected = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        assertEquals(Arrays.toString(expected), Arrays.toString(a1.getArray()));
+        a1.print_sorted();
+    }
+
+    @Test
+    public void testInsertAllAfterDelete() throws InterruptedException {
+        UNSWArray a1 = new UNSWArray(6);
+
+        a1.insertAll(new int[] {1, 3, 5, 7});
+        a1.delete(3);
+
+        // merging compacts the whole array and skips values already present
+        assertEquals(2, a1.insertAll(new int[] {2, 9, 7}));
+
+        int[] expected = {-1, 1, 2, 5, 7, 9};
+        assertEquals(Arrays.toString(expected), Arrays.toString(a1.getArray()));
+    }
+
+    @Test
+    public void testInsertSmallQueueManyThreads() throws InterruptedException {
+        // a queue of 2 forces inserting threads to block on the queue as well as drain it
+        UNSWArray a1 = new UNSWArray(40, 2);
+        Thread[] threads = new Thread[4];
+
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = offset; i < 40; i += 4) {
+                    a1.insert(i);
+                }
+            });
+            threads[t].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int[] expected = new int[40];
+        for (int i = 0; i < 40; i++) {
+            expected[i] = i;
+        }
+        assertEquals(Arrays.toString(expected), Arrays.toString(a1.getArray()));
+    }
+
+    @Test
+    public void testInsertAutoGrow() throws InterruptedException {
+        UNSWArray a1 = new UNSWArray(4);
+        a1.enableAutoGrow(64);
+        Thread[] threads = new Thread[4];
+
+        // 40 values into an array of 4 - inserts grow the array instead of waiting for deletes that never come
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = offset; i < 40; i += 4) {
+                    a1.insert(i);
+                }
+            });
+            threads[t].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // 4 -> 8 -> 16 -> 32 -> 64
+        assertEquals(64, a1.getMetrics().getCapacity());
+        assertEquals(40, a1.getMetrics().getLiveCount());
+        assertEquals(24, a1.getMetrics().getFreePermits());
+
+        int[] expected = new int[40];
+        for (int i = 0; i < 40; i++) {
+            expected[i] = i;
+            assertTrue(a1.member(i));
+        }
+        int[] array = a1.getArray();
+        assertEquals(Arrays.toString(expected), Arrays.toString(Arrays.copyOfRange(array, 24, 64)));
+
+        // the maximum has been reached so a batch that can never fit is refused
+        int[] tooMany = new int[65];
+        for (int i = 0; i < tooMany.length; i++) {
+            tooMany[i] = 100 + i;
+        }
+        assertEquals(-1, a1.insertAll(tooMany));
+
+        // once mostly empty cleanup shrinks the array again, but never below its original size
+        for (int i = 0; i < 39; i++) {
+            a1.delete(i);
+        }
+        a1.cleanup();
+        assertEquals(32, a1.getMetrics().getCapacity());
+        a1.cleanup();
+        assertEquals(16, a1.getMetrics().getCapacity());
+        a1.cleanup();
+        assertEquals(8, a1.getMetrics().getCapacity());
+        a1.cleanup();
+        assertEquals(4, a1.getMetrics().getCapacity());
+        a1.cleanup();
+        assertEquals(4, a1.getMetrics().getCapacity());
+        assertEquals(3, a1.getMetrics().getFreePermits());
+
+        int[] shrunk = {-1, -1, -1, 39};
+        assertEquals(Arrays.toString(shrunk), Arrays.toString(a1.getArray()));
+    }
+
+    @Test
+    public void testInsertOffHeap() throws InterruptedException {
+        UNSWArray a1 = new UNSWArray(40, 100, false, true);
+        Thread[] threads = new Thread[4];
+
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = offset; i < 40; i += 4) {
+                    a1.insert(i);
+                }
+            });
+            threads[t].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int[] expected = new int[40];
+        for (int i = 0; i < 40; i++) {
+            expected[i] = i;
+        }
+        assertEquals(Arrays.toString(expected), Arrays.toString(a1.getArray()));
+
+        // the off heap array behaves exactly like the heap one
+        for (int i = 0; i < 40; i += 2) {
+            a1.delete(i);
+        }
+        a1.insert(10);
+        a1.cleanup();
+        assertTrue(a1.member(10));
+        assertTrue(!a1.member(12));
+
+        int[] cleaned = new int[40];
+        Arrays.fill(cleaned, 0, 19, -1);
+        cleaned[19] = 1;
+        cleaned[20] = 3;
+        cleaned[21] = 5;
+        cleaned[22] = 7;
+        cleaned[23] = 9;
+        cleaned[24] = 10;
+        for (int i = 25; i < 40; i++) {
+            cleaned[i] = 11 + (i - 25) * 2;
+        }
+        assertEquals(Arrays.toString(cleaned), Arrays.toString(a1.getArray()));
+    }
+
+    @Test
+    public void testTryInsert() throws InterruptedException {
+        UNSWArray a1 = new UNSWArray(2);
+
+        assertEquals(1, a1.tryInsert(5, 10, TimeUnit.MILLISECONDS));
+        assertEquals(1, a1.tryInsert(3, 10, TimeUnit.MILLISECONDS));
+
+        // the array is full so it gives up once the timeout runs out
+        assertEquals(0, a1.tryInsert(4, 10, TimeUnit.MILLISECONDS));
+        assertEquals(0, a1.getMetrics().getFreePermits());
+
+        // room is made while it waits
+        Thread thread1 = new Thread(() -> a1.delete(5));
+        thread1.start();
+        assertEquals(1, a1.tryInsert(4, 10, TimeUnit.SECONDS));
+        thread1.join();
+
+        int[] expected = {3, 4};
+        assertEquals(Arrays.toString(expected), Arrays.toString(a1.getArray()));
+    }
+
+    @Test
+    public void testTryInsertBehindLongRead() throws InterruptedException {
+        UNSWArray a1 = new UNSWArray(10);
+        a1.insert(0);
+
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread reader = new Thread(() -> a1.forEachInRange(0, 0, value -> {
+            reading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                // finish the read
+            }
+        }));
+        reader.start();
+        reading.await();
+
+        // the value is queued but can't be applied while the read lock is held - the timeout still holds
+        long start = System.nanoTime();
+        assertEquals(2, a1.tryInsert(1, 50, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+
+        // and is applied (by the drain handed to the executor) once the reader is done
+        release.countDown();
+        reader.join();
+        for (int wait = 0; wait < 500 && !a1.member(1); wait++) {
+            Thread.sleep(10);
+        }
+        assertTrue(a1.member(1));
+        assertEquals(2, a1.rangeCount(0, 1));
+    }
+
+    @Test
+    public void testInsertAsync() throws Exception {
+        // a queue of 4 so most of the values find it full and are applied directly
+        UNSWArray a1 = new UNSWArray(1000, 4);
+
+        CompletableFuture<?>[][] futures = new CompletableFuture<?>[4][250];
+        Thread[] threads = new Thread[4];
+
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 250; i++) {
+                    futures[offset][i] = a1.insertAsync(i * 4 + offset);
+                }
+            });
+            threads[t].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // once every future has completed every value is in the array
+        for (CompletableFuture<?>[] thread : futures) {
+            for (CompletableFuture<?> future : thread) {
+                assertEquals(true, future.get(10, TimeUnit.SECONDS));
+            }
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(a1.member(i));
+        }
+        assertEquals(1000, a1.getMetrics().getLiveCount());
+
+        // no room left - the future completes straight away
+        CompletableFuture<Boolean> full = a1.insertAsync(1000);
+        assertTrue(full.isDone());
+        assertEquals(false, full.get());
+    }
+
+    @Test
+    public void testInsertAsyncBehindLongRead() throws Exception {
+        UNSWArray a1 = new UNSWArray(100, 2);
+        a1.insert(0);
+
+        // a reader holds the read lock until told to stop
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread reader = new Thread(() -> a1.forEachInRange(0, 0, value -> {
+            reading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                // finish the read
+            }
+        }));
+        reader.start();
+        reading.await();
+
+        // this insert drains the queue and then waits for the write lock
+        Thread drainer = new Thread(() -> a1.insert(1));
+        drainer.start();
+        while (drainer.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+
+        // two values fill the queue and the rest find it full - none of them wait for the reader
+        CompletableFuture<?>[] futures = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            CompletableFuture<?>[] pending = new CompletableFuture<?>[5];
+            for (int i = 0; i < pending.length; i++) {
+                pending[i] = a1.insertAsync(i + 2);
+            }
+            return pending;
+        });
+        for (CompletableFuture<?> future : futures) {
+            assertTrue(!future.isDone());
+        }
+
+        release.countDown();
+        reader.join();
+        drainer.join();
+
+        for (CompletableFuture<?> future : futures) {
+            assertEquals(true, future.get(10, TimeUnit.SECONDS));
+        }
+        for (int i = 0; i < 7; i++) {
+            assertTrue(a1.member(i));
+        }
+        assertEquals(7, a1.getLiveCount());
+    }
+
+    @Test
+    public void testInsertAnyInt() throws IOException {
+        UNSWArray a1 = new UNSWArray(8);
+
+        // -1 is a value like any other
+        a1.insert(-1);
+        a1.insertAll(new int[] {Integer.MAX_VALUE, -5, Integer.MIN_VALUE, 0});
+        a1.insert(-1);
+
+        assertTrue(a1.member(-1));
+        assertTrue(a1.member(Integer.MIN_VALUE));
+        assertTrue(!a1.member(-2));
+        assertEquals(5, a1.getLiveCount());
+        assertEquals(3, a1.rangeCount(Integer.MIN_VALUE, -1));
+
+        StringBuilder values = new StringBuilder();
+        a1.writeSorted(values);
+        assertEquals(Integer.MIN_VALUE + ", -5, -1, 0, " + Integer.MAX_VALUE, values.toString());
+
+        a1.delete(-1);
+        a1.delete(-1);
+        assertTrue(!a1.member(-1));
+        assertEquals(4, a1.getLiveCount());
+        assertEquals(4, a1.getFreePermits());
+
+        a1.insert(-1);
+        assertEquals(1, a1.deleteAll(new int[] {-1, -2}));
+        assertEquals(2, a1.deleteRange(Integer.MIN_VALUE, -1));
+
+        // getArray shows the gaps as -1
+        a1.cleanup();
+        int[] expected = {-1, -1, -1, -1, -1, -1, 0, Integer.MAX_VALUE};
+        assertEquals(Arrays.toString(expected), Arrays.toString(a1.getArray()));
+    }
+
 }
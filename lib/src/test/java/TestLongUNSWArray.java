@@ -0,0 +1,193 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+public class TestLongUNSWArray {
+
+    // Inserts "values" into "a1" in a single drain of the insert queue, so they reach applyBatch together (insertAll merges instead)
+    // A read lock is held while "first" is drained on another thread - everything queued behind it then goes in as the next batch
+    private static void insertAsOneBatch(AbstractUNSWArray a1, Runnable first, LongFunction<CompletableFuture<Boolean>> insertAsync,
+                                         long[] values) throws InterruptedException {
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        Thread drainer = new Thread(first);
+
+        a1.r.lock();
+        try {
+            drainer.start();
+            // the drainer has taken "first" out of the queue and is waiting for the write lock
+            while (drainer.getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+            for (long value : values) {
+                futures.add(insertAsync.apply(value));
+            }
+        } finally {
+            a1.r.unlock();
+        }
+
+        drainer.join();
+        for (CompletableFuture<Boolean> future : futures) {
+            assertTrue(future.join());
+        }
+    }
+
+    @Test
+    public void testInsertDeleteBeyondIntRange() throws InterruptedException {
+        LongUNSWArray a1 = new LongUNSWArray(10);
+        long big = 1L << 40;
+
+        Thread thread1 = new Thread(() -> {
+            a1.insert(big + 2);
+            a1.insert(-big);
+            a1.insert(Long.MAX_VALUE);
+        });
+
+        Thread thread2 = new Thread(() -> {
+            a1.insertAll(new long[] {big + 1, Long.MIN_VALUE, big + 1, 0});
+        });
+
+        thread1.start();
+        thread2.start();
+
+        thread1.join();
+        thread2.join();
+
+        a1.delete(big + 2);
+        a1.delete(-1);
+
+        assertTrue(a1.member(big + 1));
+        assertTrue(!a1.member(big + 2));
+        // only the low 32 bits match
+        assertTrue(!a1.member(1));
+        assertEquals(5, a1.getLiveCount());
+        assertEquals(5, a1.getFreePermits());
+        assertEquals(2, a1.rangeCount(0, big + 1));
+
+        a1.cleanup();
+        assertArrayEquals(new long[] {-1, -1, -1, -1, -1, Long.MIN_VALUE, -big, 0, big + 1, Long.MAX_VALUE}, a1.getArray());
+
+        PrintStream original = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output));
+        try {
+            a1.print_sorted();
+        } finally {
+            System.setOut(original);
+        }
+
+        assertEquals(" " + Long.MIN_VALUE + ", " + (-big) + ", 0, " + (big + 1) + ", " + Long.MAX_VALUE, output.toString());
+    }
+
+    @Test
+    public void testSharedEngine() throws InterruptedException {
+        // auto grow, the insert queue and the background compactor all come from AbstractUNSWArray
+        LongUNSWArray a1 = new LongUNSWArray(16, 8);
+        a1.enableAutoGrow(1 << 16);
+        a1.startCompactor(0.1, 64, 1);
+
+        long base = 3L << 33;
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = offset; i < 20000; i += 4) {
+                    // unlike insert, tryInsert only returns once the value is in the array - so it can't be applied after the delete
+                    assertEquals(1, a1.tryInsert(base + i * 7L, 1, TimeUnit.MINUTES));
+                    if (i % 3 == 0) {
+                        a1.delete(base + i * 7L);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        a1.stopCompactor();
+
+        int expected = 0;
+        for (int i = 0; i < 20000; i++) {
+            assertEquals(i % 3 != 0, a1.member(base + i * 7L));
+            if (i % 3 != 0) {
+                expected++;
+            }
+        }
+        assertEquals(expected, a1.getLiveCount());
+        assertEquals(expected, a1.rangeCount(Long.MIN_VALUE, Long.MAX_VALUE));
+        assertTrue(a1.getCapacity() >= expected);
+
+        assertEquals(expected, a1.deleteRange(base, base + 7L * 20000));
+        assertEquals(0, a1.getLiveCount());
+        assertEquals(a1.getCapacity(), a1.getFreePermits());
+    }
+
+    @Test
+    public void testMatchesUNSWArray() throws InterruptedException {
+        // the searches, insertIntoArray, applyBatch and mergeIntoArray are written out once per key type - the same operations on
+        // int keys must leave both arrays with the same values in the same slots
+        UNSWArray ints = new UNSWArray(4096, 512);
+        LongUNSWArray longs = new LongUNSWArray(4096, 512);
+        Random random = new Random(23);
+
+        for (int round = 0; round < 3000; round++) {
+            // fewer distinct keys than slots so nothing ever waits for room
+            int x = random.nextInt(3000) - 1500;
+
+            switch (random.nextInt(6)) {
+                case 0:
+                case 1:
+                    assertEquals(ints.insert(x), longs.insert(x));
+                    break;
+                case 2:
+                    // after a cleanup every gap is at the start, so a big batch shifts far enough for applyBatch to switch from one
+                    // at a time inserts to a merge
+                    if (random.nextBoolean()) {
+                        assertEquals(ints.cleanup(), longs.cleanup());
+                    }
+                    long[] batch = new long[1 + random.nextInt(300)];
+                    for (int i = 0; i < batch.length; i++) {
+                        batch[i] = random.nextInt(3000) - 1500;
+                    }
+
+                    if (random.nextBoolean()) {
+                        assertEquals(ints.insertAll(Arrays.stream(batch).mapToInt(v -> (int) v).toArray()), longs.insertAll(batch));
+                    } else {
+                        insertAsOneBatch(ints, () -> ints.insert(x), v -> ints.insertAsync((int) v), batch);
+                        insertAsOneBatch(longs, () -> longs.insert(x), longs::insertAsync, batch);
+                    }
+                    break;
+                case 3:
+                    ints.delete(x);
+                    longs.delete(x);
+                    break;
+                case 4:
+                    int hi = x + random.nextInt(40);
+                    assertEquals(ints.deleteRange(x, hi), longs.deleteRange(x, hi));
+                    break;
+                default:
+                    if (random.nextInt(10) == 0) {
+                        assertEquals(ints.cleanup(), longs.cleanup());
+                    }
+                    break;
+            }
+
+            assertEquals(ints.member(x), longs.member(x));
+            assertEquals(ints.rangeCount(x - 100, x + 100), longs.rangeCount(x - 100, x + 100));
+            assertEquals(ints.getLiveCount(), longs.getLiveCount());
+            assertArrayEquals(Arrays.stream(ints.getArray()).asLongStream().toArray(), longs.getArray());
+        }
+    }
+
+}
@@ -1,7 +1,10 @@
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Arrays;
+
 public class TestMember2 {
     @Test
     public void testBasicNotMember() throws InterruptedException {
@@ -217,4 +220,128 @@ public class TestMember2 {
 
     }
 
+    @Test
+    public void testOptimisticMemberWhileWriting() throws InterruptedException {
+        UNSWArray a1 = new UNSWArray(200, 100, true);
+
+        // even numbers go in first and must stay members throughout
+        for (int i = 0; i < 200; i += 2) {
+            a1.insert(i);
+        }
+
+        // write thread keeps inserting, deleting and cleaning up odd numbers
+        Thread thread1 = new Thread(() -> {
+            for (int round = 0; round < 20; round++) {
+                for (int i = 1; i < 200; i += 2) {
+                    a1.insert(i);
+                }
+                for (int i = 1; i < 200; i += 2) {
+                    a1.delete(i);
+                }
+                a1.cleanup();
+            }
+        });
+
+        // read threads check membership without blocking the writer
+        boolean[] failed = new boolean[1];
+        Thread thread2 = new Thread(() -> {
+            for (int round = 0; round < 200; round++) {
+                for (int i = 0; i < 200; i += 2) {
+                    if (!a1.member(i)) {
+                        failed[0] = true;
+                    }
+                }
+            }
+        });
+
+        Thread thread3 = new Thread(() -> {
+            for (int round = 0; round < 200; round++) {
+                if (a1.member(201)) {
+                    failed[0] = true;
+                }
+            }
+        });
+
+        thread1.start();
+        thread2.start();
+        thread3.start();
+
+        thread1.join();
+        thread2.join();
+        thread3.join();
+
+        assertTrue(!failed[0]);
+    }
+
+    @Test
+    public void testMemberAfterHeavyDeletes() throws InterruptedException {
+        UNSWArray a1 = new UNSWArray(1000);
+
+        int[] values = new int[1000];
+        for (int i = 0; i < 1000; i++) {
+            values[i] = i;
+        }
+        a1.insertAll(values);
+
+        // two threads delete everything except multiples of 97 - leaving long runs of -1 between the live values
+        Thread thread1 = new Thread(() -> {
+            for (int i = 0; i < 1000; i += 2) {
+                if (i % 97 != 0) {
+                    a1.delete(i);
+                }
+            }
+        });
+
+        Thread thread2 = new Thread(() -> {
+            for (int i = 999; i > 0; i -= 2) {
+                if (i % 97 != 0) {
+                    a1.delete(i);
+                }
+            }
+        });
+
+        thread1.start();
+        thread2.start();
+
+        thread1.join();
+        thread2.join();
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(a1.member(i) == (i % 97 == 0));
+        }
+    }
+
+    @Test
+    public void testMemberAll() {
+        UNSWArray a1 = new UNSWArray(1000);
+
+        int[] values = new int[500];
+        for (int i = 0; i < 500; i++) {
+            values[i] = i * 3;
+        }
+        a1.insertAll(values);
+        a1.delete(30);
+
+        // sorted probes spread unevenly over the array (including either side of it)
+        int[] probes = {-5, 0, 1, 3, 30, 33, 34, 600, 1497, 1500, 4000};
+        boolean[] out = new boolean[probes.length];
+
+        assertEquals(5, a1.memberAll(probes, out));
+
+        boolean[] expected = {false, true, false, true, false, true, false, true, true, false, false};
+        assertEquals(Arrays.toString(expected), Arrays.toString(out));
+
+        // every probe gets the same answer as member
+        int[] all = new int[1600];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = i;
+        }
+        boolean[] found = new boolean[all.length];
+        a1.memberAll(all, found);
+
+        for (int i = 0; i < all.length; i++) {
+            assertEquals(a1.member(i), found[i]);
+        }
+    }
+
 }
@@ -0,0 +1,104 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
+public class TestMetrics {
+
+    @Test
+    public void testOccupancyCounts() throws InterruptedException {
+        UNSWArray a1 = new UNSWArray(10);
+        UNSWArrayMetrics metrics = a1.getMetrics();
+
+        Thread thread1 = new Thread(() -> {
+            for (int i = 0; i < 8; i++) {
+                a1.insert(i);
+            }
+        });
+
+        thread1.start();
+        thread1.join();
+
+        // {-1, -1, 0, 1, 2, 3, 4, 5, 6, 7}
+        assertEquals(8, metrics.getLiveCount());
+        assertEquals(0, metrics.getTombstoneCount());
+        assertEquals(2, metrics.getFreePermits());
+        assertEquals(0, metrics.getQueueDepth());
+
+        a1.delete(3);
+        a1.delete(5);
+
+        // the two -1 values at the start are free space but the deleted values leave tombstones
+        assertEquals(6, metrics.getLiveCount());
+        assertEquals(2, metrics.getTombstoneCount());
+        assertEquals(4, metrics.getFreePermits());
+
+        a1.cleanup();
+        assertEquals(0, metrics.getTombstoneCount());
+
+        assertTrue(metrics.getDrainCount() > 0);
+        assertTrue(metrics.getWriteLockHoldCount() > 0);
+        assertTrue(metrics.getWriteLockHoldMax() >= metrics.getWriteLockHoldP50());
+    }
+
+    @Test
+    public void testPermitWaitAndJmx() throws Exception {
+        UNSWArray a1 = new UNSWArray(2);
+        UNSWArrayMetrics metrics = a1.getMetrics();
+
+        a1.insert(0);
+        a1.insert(1);
+
+        // the array is full so this insert has to wait for the delete
+        Thread thread1 = new Thread(() -> {
+            a1.insert(2);
+        });
+
+        thread1.start();
+        // only delete once the insert is actually waiting for a permit - the only place it can park
+        while (thread1.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        a1.delete(0);
+        thread1.join();
+
+        assertEquals(1, metrics.getPermitWaitCount());
+        assertTrue(metrics.getPermitWaitMax() > 0);
+
+        ObjectName name = metrics.register("assignment1:type=UNSWArray,name=TestMetrics");
+        try {
+            assertEquals(2, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "LiveCount"));
+        } finally {
+            metrics.unregister(name);
+        }
+    }
+
+    @Test
+    public void testHistogramMaxUnderContention() throws InterruptedException {
+        LogHistogram histogram = new LogHistogram();
+
+        // every thread records the same values in a different order so smaller values keep racing the largest one
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100000; i++) {
+                    histogram.record((i * 7919L + offset) % 100000);
+                }
+            });
+            threads[t].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(99999, histogram.getMax());
+        assertEquals(99999, histogram.getPercentile(100));
+        assertEquals(800000, histogram.getCount());
+    }
+
+}
@@ -0,0 +1,108 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+public class TestPartitioned {
+
+    @Test
+    public void testInsertAcrossSegments() throws InterruptedException {
+        // 4 segments of keys 0-24, 25-49, 50-74 and 75-99
+        PartitionedUNSWArray a1 = new PartitionedUNSWArray(4, 25, 99);
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = offset; i < 100; i += 4) {
+                    a1.insert(i);
+                }
+            });
+            threads[t].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(a1.member(i));
+        }
+        assertTrue(!a1.member(100));
+    }
+
+    @Test
+    public void testDeleteAndPrintSorted() throws InterruptedException {
+        PartitionedUNSWArray a1 = new PartitionedUNSWArray(new int[] {10, 20}, 10);
+
+        Thread thread1 = new Thread(() -> {
+            a1.insertAll(new int[] {25, 3, 12, 18, 7, 21});
+        });
+
+        Thread thread2 = new Thread(() -> {
+            a1.insert(10);
+            a1.insert(20);
+        });
+
+        thread1.start();
+        thread2.start();
+
+        thread1.join();
+        thread2.join();
+
+        a1.delete(12);
+        a1.delete(21);
+        a1.cleanup();
+
+        assertTrue(!a1.member(12));
+        assertTrue(a1.member(10));
+        assertTrue(a1.member(20));
+
+        // print_sorted output must be in global sorted order
+        PrintStream original = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output));
+        try {
+            a1.print_sorted();
+        } finally {
+            System.setOut(original);
+        }
+
+        assertEquals(" 3, 7, 10, 18, 20, 25", output.toString());
+    }
+
+    @Test
+    public void testRangeAcrossSegments() {
+        PartitionedUNSWArray a1 = new PartitionedUNSWArray(new int[] {10, 20}, 10);
+        a1.insertAll(new int[] {25, 3, 12, 18, 7, 21, 10, 20});
+
+        // 7 is in the first segment, 21 in the last
+        assertEquals(6, a1.rangeCount(7, 21));
+
+        StringBuilder values = new StringBuilder();
+        a1.forEachInRange(7, 21, value -> values.append(value).append(" "));
+        assertEquals("7 10 12 18 20 21 ", values.toString());
+
+        StringBuilder iterated = new StringBuilder();
+        a1.iterator().forEachRemaining((int value) -> iterated.append(value).append(" "));
+        assertEquals("3 7 10 12 18 20 21 25 ", iterated.toString());
+
+        assertTrue(!a1.iterator(13, 17).hasNext());
+    }
+
+    @Test
+    public void testMemberAllAcrossSegments() {
+        PartitionedUNSWArray a1 = new PartitionedUNSWArray(new int[] {10, 20}, 10);
+        a1.insertAll(new int[] {25, 3, 12, 18, 7, 21, 10, 20});
+
+        int[] probes = {3, 4, 10, 11, 18, 20, 25, 30};
+        boolean[] out = new boolean[probes.length];
+
+        assertEquals(5, a1.memberAll(probes, out));
+        assertEquals("[true, false, true, false, true, true, true, false]", Arrays.toString(out));
+    }
+
+}
@@ -0,0 +1,102 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.PrimitiveIterator;
+
+public class TestRange {
+
+    @Test
+    public void testRangeCount() {
+        UNSWArray a1 = new UNSWArray(10);
+
+        a1.insertAll(new int[] {2, 4, 6, 8, 10, 12});
+        a1.delete(6);
+
+        assertEquals(5, a1.rangeCount(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(2, a1.rangeCount(3, 9));
+        assertEquals(3, a1.rangeCount(4, 10));
+        assertEquals(0, a1.rangeCount(5, 7));
+        assertEquals(0, a1.rangeCount(9, 3));
+        assertEquals(1, a1.rangeCount(12, 100));
+    }
+
+    @Test
+    public void testForEachInRange() {
+        UNSWArray a1 = new UNSWArray(10);
+
+        a1.insertAll(new int[] {5, 1, 9, 3, 7});
+        a1.delete(5);
+
+        StringBuilder values = new StringBuilder();
+        a1.forEachInRange(2, 9, value -> values.append(value).append(" "));
+        assertEquals("3 7 9 ", values.toString());
+
+        StringBuilder none = new StringBuilder();
+        a1.forEachInRange(10, 20, value -> none.append(value));
+        assertEquals("", none.toString());
+    }
+
+    @Test
+    public void testIterator() {
+        UNSWArray a1 = new UNSWArray(1000);
+
+        int[] values = new int[1000];
+        for (int i = 0; i < 1000; i++) {
+            values[i] = i * 2;
+        }
+        a1.insertAll(values);
+
+        // more values than one block of the iterator
+        PrimitiveIterator.OfInt iterator = a1.iterator();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(iterator.hasNext());
+            assertEquals(i * 2, iterator.nextInt());
+        }
+        assertTrue(!iterator.hasNext());
+
+        PrimitiveIterator.OfInt range = a1.iterator(11, 17);
+        assertEquals(12, range.nextInt());
+        assertEquals(14, range.nextInt());
+        assertEquals(16, range.nextInt());
+        assertTrue(!range.hasNext());
+    }
+
+    @Test
+    public void testIteratorWhileWriting() throws InterruptedException {
+        UNSWArray a1 = new UNSWArray(2000);
+
+        int[] evens = new int[1000];
+        for (int i = 0; i < 1000; i++) {
+            evens[i] = i * 2;
+        }
+        a1.insertAll(evens);
+
+        // insert odd values and delete multiples of 4 while iterating
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 1000; i++) {
+                a1.insert(i * 2 + 1);
+                a1.delete(i * 4);
+            }
+        });
+        writer.start();
+
+        // whatever the writer does the iterator must stay sorted and keep every value it was never told to delete
+        int previous = -1;
+        int kept = 0;
+        PrimitiveIterator.OfInt iterator = a1.iterator();
+        while (iterator.hasNext()) {
+            int value = iterator.nextInt();
+            assertTrue(value > previous);
+            if (value % 4 == 2) {
+                kept++;
+            }
+            previous = value;
+        }
+        writer.join();
+
+        assertEquals(500, kept);
+        assertEquals(500 + 1000, a1.rangeCount(0, Integer.MAX_VALUE));
+    }
+
+}
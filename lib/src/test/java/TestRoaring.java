@@ -0,0 +1,143 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TestRoaring {
+
+    @Test
+    public void testMatchesTreeSet() {
+        RoaringUNSWArray a1 = new RoaringUNSWArray();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(5);
+
+        // a dense range (bitmap and, after cleanup, run containers), a sparse one (array containers) and both ends of the int range
+        for (int round = 0; round < 4; round++) {
+            for (int i = 0; i < 100000; i++) {
+                int x;
+                switch (random.nextInt(4)) {
+                    case 0: x = 200000 + random.nextInt(70000); break;
+                    case 1: x = random.nextInt(); break;
+                    case 2: x = Integer.MIN_VALUE + random.nextInt(100); break;
+                    default: x = Integer.MAX_VALUE - random.nextInt(100); break;
+                }
+
+                if (random.nextInt(3) != 0) {
+                    assertEquals(expected.add(x) ? 1 : 0, a1.insert(x));
+                } else {
+                    a1.delete(x);
+                    expected.remove(x);
+                }
+            }
+
+            // long runs to split and join
+            int[] run = new int[5000];
+            for (int i = 0; i < run.length; i++) {
+                run[i] = -3000 + i;
+                expected.add(run[i]);
+            }
+            a1.insertAll(run);
+
+            a1.cleanup();
+            for (int i = 0; i < 2000; i++) {
+                int x = -3000 + random.nextInt(5000);
+                a1.delete(x);
+                expected.remove(x);
+            }
+
+            assertEquals(expected.size(), a1.getLiveCount());
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), a1.toSortedArray());
+            for (int x = 199990; x < 270010; x++) {
+                assertEquals(expected.contains(x), a1.member(x));
+            }
+
+            int lo = random.nextInt();
+            int hi = random.nextInt();
+            assertEquals(lo > hi ? 0 : expected.subSet(lo, true, hi, true).size(), a1.rangeCount(lo, hi));
+            assertEquals(expected.subSet(200000, true, 270000, true).size(), a1.rangeCount(200000, 270000));
+            assertEquals(expected.size(), a1.rangeCount(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        }
+
+        PrintStream original = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        RoaringUNSWArray a2 = new RoaringUNSWArray();
+        a2.insertAll(new int[] {3, -1, 70000, Integer.MIN_VALUE, 3});
+        System.setOut(new PrintStream(output));
+        try {
+            a2.print_sorted();
+        } finally {
+            System.setOut(original);
+        }
+        assertEquals(" " + Integer.MIN_VALUE + ", -1, 3, 70000", output.toString());
+    }
+
+    @Test
+    public void testDenseRangeConcurrently() throws InterruptedException {
+        RoaringUNSWArray a1 = new RoaringUNSWArray();
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = offset; i < 1000000; i += 4) {
+                    a1.insert(i);
+                    if (i % 3 == 0) {
+                        a1.delete(i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int expected = 1000000 - 333334;
+        assertEquals(expected, a1.getLiveCount());
+        assertEquals(expected, a1.rangeCount(0, 999999));
+        for (int i = 0; i < 1000000; i++) {
+            assertEquals(i % 3 != 0, a1.member(i));
+        }
+
+        // every chunk is dense - a bitmap each, under a byte per value (chunk table included) against 4 for a sorted int[]
+        a1.cleanup();
+        assertTrue(a1.sizeInBytes() < expected);
+
+        assertEquals(expected, a1.deleteAll(a1.toSortedArray()));
+        assertEquals(0, a1.getLiveCount());
+    }
+
+    @Test
+    public void testToSortedArrayIsPointInTime() throws InterruptedException {
+        RoaringUNSWArray a1 = new RoaringUNSWArray();
+        AtomicBoolean done = new AtomicBoolean();
+
+        // one value per chunk, in ascending order - so any point in time copy is exactly the first few of them, where reading the
+        // chunks one at a time could pick up a later chunk's value and miss an earlier one's
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 32768; i++) {
+                a1.insert(i << 16);
+            }
+            done.set(true);
+        });
+        writer.start();
+
+        while (!done.get()) {
+            int[] values = a1.toSortedArray();
+            for (int i = 0; i < values.length; i++) {
+                assertEquals(i << 16, values[i]);
+            }
+        }
+        writer.join();
+
+        assertEquals(32768, a1.toSortedArray().length);
+    }
+
+}
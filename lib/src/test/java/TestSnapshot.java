@@ -0,0 +1,126 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class TestSnapshot {
+
+    @Test
+    public void testSnapshotAndLoad(@TempDir Path dir) throws IOException {
+        UNSWArray a1 = new UNSWArray(10);
+        Path path = dir.resolve("set.snapshot");
+
+        a1.insertAll(new int[] {8, 2, 6, 4, 0, 7});
+        a1.delete(6);
+        a1.delete(0);
+        a1.snapshot(path);
+
+        // only the live values are written, after a 24 byte header
+        assertEquals(24 + 4 * 4, Files.size(path));
+
+        UNSWArray a2 = UNSWArray.load(path);
+
+        int[] expected = {-1, -1, -1, -1, -1, -1, 2, 4, 7, 8};
+        assertEquals(Arrays.toString(expected), Arrays.toString(a2.getArray()));
+        assertEquals(4, a2.getMetrics().getLiveCount());
+        assertEquals(6, a2.getMetrics().getFreePermits());
+
+        // the loaded array carries on like any other
+        a2.insert(5);
+        a2.delete(2);
+        assertTrue(a2.member(5));
+
+        int[] after = {-1, -1, -1, -1, -1, -1, 4, 5, 7, 8};
+        assertEquals(Arrays.toString(after), Arrays.toString(a2.getArray()));
+
+        // a second snapshot replaces the first
+        a2.snapshot(path);
+        UNSWArray a3 = UNSWArray.load(path, 10, true, true);
+        assertEquals(Arrays.toString(after), Arrays.toString(a3.getArray()));
+    }
+
+    @Test
+    public void testSnapshotWhileInserting(@TempDir Path dir) throws Exception {
+        UNSWArray a1 = new UNSWArray(5000);
+        Path path = dir.resolve("set.snapshot");
+
+        Thread thread1 = new Thread(() -> {
+            for (int i = 0; i < 5000; i++) {
+                a1.insert(i);
+            }
+        });
+
+        thread1.start();
+        a1.snapshot(path);
+        thread1.join();
+
+        // the snapshot holds some prefix of the inserts (every value up to however far the insert thread had got)
+        int[] loaded = UNSWArray.load(path).getArray();
+        int expectedValue = 0;
+        for (int value : loaded) {
+            if (value != -1) {
+                assertEquals(expectedValue, value);
+                expectedValue++;
+            }
+        }
+    }
+
+    @Test
+    public void testSnapshotAndLoadCompressed(@TempDir Path dir) throws IOException {
+        UNSWArray a1 = new UNSWArray(3000, 100, false, false, true);
+        Path path = dir.resolve("set.snapshot");
+
+        // dense IDs spanning several packed blocks, with a few far away values that widen theirs
+        int[] ids = new int[2000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i % 500 == 0 ? -1000000 * i : 500000 + 3 * i;
+        }
+        a1.insertAll(ids);
+        a1.delete(500000 + 3 * 7);
+        a1.snapshot(path);
+
+        UNSWArray a2 = UNSWArray.load(path, 100, false, false, true);
+        a1.cleanup();
+        assertEquals(Arrays.toString(a1.getArray()), Arrays.toString(a2.getArray()));
+        assertEquals(1999, a2.getLiveCount());
+
+        // the loaded array carries on like any other
+        a2.insert(7);
+        a2.delete(500000 + 3 * 8);
+        assertTrue(a2.member(7));
+        assertTrue(!a2.member(500000 + 3 * 8));
+        assertTrue(a2.member(500000 + 3 * 9));
+
+        // compressed can't be combined with off heap here either
+        assertThrows(IllegalArgumentException.class, () -> UNSWArray.load(path, 100, false, true, true));
+    }
+
+    @Test
+    public void testLoadCorrupt(@TempDir Path dir) throws IOException {
+        UNSWArray a1 = new UNSWArray(4);
+        Path path = dir.resolve("set.snapshot");
+
+        a1.insertAll(new int[] {1, 2, 3});
+        a1.snapshot(path);
+
+        // flip one of the values
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {9}), 28);
+        }
+        assertThrows(IOException.class, () -> UNSWArray.load(path));
+
+        // not a snapshot at all
+        Files.write(path, new byte[] {1, 2, 3});
+        assertThrows(IOException.class, () -> UNSWArray.load(path));
+    }
+
+}
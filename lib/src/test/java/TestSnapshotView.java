@@ -0,0 +1,88 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.PrimitiveIterator;
+
+public class TestSnapshotView {
+
+    @Test
+    public void testViewIsPointInTime() {
+        UNSWArray a1 = new UNSWArray(10);
+
+        a1.insertAll(new int[] {1, 3, 5, 7});
+        UNSWArrayView view = a1.snapshotView();
+
+        a1.delete(3);
+        a1.insert(4);
+        a1.cleanup();
+        UNSWArrayView later = a1.snapshotView();
+        a1.insert(9);
+
+        assertEquals(4, view.size());
+        StringBuilder values = new StringBuilder();
+        view.iterator().forEachRemaining((int value) -> values.append(value).append(" "));
+        assertEquals("1 3 5 7 ", values.toString());
+
+        StringBuilder laterValues = new StringBuilder();
+        later.iterator().forEachRemaining((int value) -> laterValues.append(value).append(" "));
+        assertEquals("1 4 5 7 ", laterValues.toString());
+
+        assertTrue(a1.member(9));
+    }
+
+    @Test
+    public void testViewWhileWriting() throws InterruptedException {
+        UNSWArray a1 = new UNSWArray(20000);
+
+        int[] evens = new int[10000];
+        for (int i = 0; i < 10000; i++) {
+            evens[i] = i * 2;
+        }
+        a1.insertAll(evens);
+
+        UNSWArrayView view = a1.snapshotView();
+        PrimitiveIterator.OfInt iterator = view.iterator();
+
+        // change every page of the array while the view is being read
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 10000; i++) {
+                a1.insert(i * 2 + 1);
+                if (i % 2 == 0) {
+                    a1.delete(i * 2);
+                }
+            }
+            a1.cleanup();
+        });
+        writer.start();
+
+        // the view never sees any of the writer's changes
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(iterator.hasNext());
+            assertEquals(i * 2, iterator.nextInt());
+        }
+        assertTrue(!iterator.hasNext());
+
+        writer.join();
+        assertEquals(15000, a1.rangeCount(0, Integer.MAX_VALUE));
+        assertEquals(15000, a1.snapshotView().size());
+    }
+
+    @Test
+    public void testViewWithNegativeValues() {
+        UNSWArray a1 = new UNSWArray(10);
+
+        a1.insertAll(new int[] {-3, -1, 2});
+        UNSWArrayView view = a1.snapshotView();
+
+        // deletes only clear occupancy bits - the view keeps its own copy of them
+        a1.delete(-1);
+        a1.insert(-2);
+
+        assertEquals(3, view.size());
+        StringBuilder values = new StringBuilder();
+        view.iterator().forEachRemaining((int value) -> values.append(value).append(" "));
+        assertEquals("-3 -1 2 ", values.toString());
+    }
+
+}
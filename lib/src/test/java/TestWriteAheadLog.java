@@ -0,0 +1,166 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class TestWriteAheadLog {
+
+    @Test
+    public void testReplay(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("set.log");
+        UNSWArray a1 = new UNSWArray(10);
+
+        assertEquals(0, a1.enableWriteAheadLog(path));
+        a1.insert(5);
+        a1.insert(3);
+        a1.insertAll(new int[] {9, 1, 7});
+        a1.delete(3);
+        a1.delete(4); // not in the array so nothing is logged
+        a1.insert(3);
+        a1.delete(9);
+        a1.disableWriteAheadLog();
+
+        // a fresh array replaying the log ends up with the same values
+        UNSWArray a2 = new UNSWArray(10);
+        assertEquals(6, a2.enableWriteAheadLog(path));
+
+        int[] expected = {-1, -1, -1, -1, -1, -1, 1, 3, 5, 7};
+        assertEquals(Arrays.toString(expected), Arrays.toString(a2.getArray()));
+
+        // and carries on logging after the replayed records
+        a2.delete(1);
+        a2.disableWriteAheadLog();
+
+        UNSWArray a3 = new UNSWArray(10);
+        assertEquals(7, a3.enableWriteAheadLog(path));
+        assertTrue(!a3.member(1));
+        assertTrue(a3.member(7));
+        a3.disableWriteAheadLog();
+    }
+
+    @Test
+    public void testReplayMultithread(@TempDir Path dir) throws Exception {
+        Path path = dir.resolve("set.log");
+        UNSWArray a1 = new UNSWArray(200);
+        a1.enableWriteAheadLog(path);
+
+        Thread[] threads = new Thread[4];
+
+        // inserts from every thread share fsyncs - each one returns once its own value is durable
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = offset; i < 200; i += 4) {
+                    a1.insert(i);
+                    if (i % 3 == 0) {
+                        a1.delete(i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        a1.disableWriteAheadLog();
+
+        UNSWArray a2 = new UNSWArray(200);
+        a2.enableWriteAheadLog(path);
+        a2.cleanup();
+        a1.cleanup();
+        assertEquals(Arrays.toString(a1.getArray()), Arrays.toString(a2.getArray()));
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i % 3 != 0, a2.member(i));
+        }
+        a2.disableWriteAheadLog();
+    }
+
+    @Test
+    public void testTornRecord(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("set.log");
+        UNSWArray a1 = new UNSWArray(4);
+
+        a1.enableWriteAheadLog(path);
+        a1.insert(2);
+        a1.insert(1);
+        a1.disableWriteAheadLog();
+        long size = Files.size(path);
+
+        // half a record left behind by a crash in the middle of a write
+        Files.write(path, new byte[] {1, 0, 0, 0, 3, 0, 0, 0, 8}, StandardOpenOption.APPEND);
+
+        UNSWArray a2 = new UNSWArray(4);
+        assertEquals(2, a2.enableWriteAheadLog(path));
+        a2.disableWriteAheadLog();
+
+        int[] expected = {-1, -1, 1, 2};
+        assertEquals(Arrays.toString(expected), Arrays.toString(a2.getArray()));
+        // the torn record is cut off
+        assertEquals(size, Files.size(path));
+    }
+
+    @Test
+    public void testSnapshotResetsLog(@TempDir Path dir) throws IOException {
+        Path log = dir.resolve("set.log");
+        Path snapshot = dir.resolve("set.snapshot");
+        UNSWArray a1 = new UNSWArray(4);
+
+        a1.enableWriteAheadLog(log);
+        a1.insertAll(new int[] {1, 2, 3, 4});
+        a1.snapshot(snapshot);
+
+        // everything before the snapshot is no longer needed
+        assertEquals(0, Files.size(log));
+
+        a1.delete(2);
+        a1.insert(6);
+        a1.disableWriteAheadLog();
+
+        // restart - load the snapshot then replay what happened after it
+        UNSWArray a2 = UNSWArray.load(snapshot);
+        assertEquals(2, a2.enableWriteAheadLog(log));
+        a2.disableWriteAheadLog();
+
+        int[] expected = {1, 3, 4, 6};
+        assertEquals(Arrays.toString(expected), Arrays.toString(a2.getArray()));
+    }
+
+    @Test
+    public void testTruncateBeforeCut(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("set.log");
+        WriteAheadLog log = new WriteAheadLog(path);
+
+        log.sync(log.append(WriteAheadLog.INSERT, new int[] {1, 2}, 2));
+
+        // a cut among records that haven't been written to the file yet - the unwritten ones before it are dropped too
+        log.append(WriteAheadLog.DELETE, 1);
+        long cut = log.cut();
+        log.append(WriteAheadLog.INSERT, 3);
+        log.truncateBefore(cut);
+        log.sync(log.append(WriteAheadLog.INSERT, 4));
+        // two records of one value each
+        assertEquals(2 * 16, Files.size(path));
+
+        // and one in the file
+        long later = log.cut();
+        log.sync(log.append(WriteAheadLog.DELETE, 3));
+        log.truncateBefore(later);
+        // an older cut than one already dropped does nothing
+        log.truncateBefore(cut);
+        log.close();
+
+        StringBuilder records = new StringBuilder();
+        WriteAheadLog reopened = new WriteAheadLog(path);
+        assertEquals(1, reopened.replay((type, values, count) -> records.append(type).append(":").append(values[0])));
+        reopened.close();
+        assertEquals("2:3", records.toString());
+    }
+
+}
@@ -0,0 +1,67 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+public class TestWriteSorted {
+
+    @Test
+    public void testWriteSortedText() throws IOException {
+        UNSWArray a1 = new UNSWArray(10);
+
+        StringBuilder empty = new StringBuilder();
+        a1.writeSorted(empty);
+        assertEquals("", empty.toString());
+
+        a1.insertAll(new int[] {7, -3, 5, 0, 9});
+        a1.delete(5);
+
+        StringBuilder out = new StringBuilder();
+        a1.writeSorted(out);
+        assertEquals("-3, 0, 7, 9", out.toString());
+
+        StringBuilder chunked = new StringBuilder();
+        a1.writeSorted(chunked, true);
+        assertEquals("-3, 0, 7, 9", chunked.toString());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        a1.writeSorted(Channels.newChannel(bytes), UNSWArray.Format.TEXT);
+        assertEquals("-3, 0, 7, 9", new String(bytes.toByteArray(), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testWriteSortedBinary() throws IOException {
+        // more values than one chunk
+        UNSWArray a1 = new UNSWArray(10000);
+
+        int[] values = new int[10000];
+        for (int i = 0; i < 10000; i++) {
+            values[i] = 10000 - i;
+        }
+        a1.insertAll(values);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        a1.writeSorted(Channels.newChannel(bytes), UNSWArray.Format.BINARY);
+        assertEquals(4 * 10000, bytes.size());
+
+        ByteBuffer written = ByteBuffer.wrap(bytes.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 1; i <= 10000; i++) {
+            assertEquals(i, written.getInt());
+        }
+
+        // every value exactly once, with the separators carrying on across chunks
+        StringBuilder out = new StringBuilder();
+        a1.writeSorted(out, true);
+        String[] text = out.toString().split(", ");
+        assertEquals(10000, text.length);
+        for (int i = 1; i <= 10000; i++) {
+            assertEquals(Integer.toString(i), text[i - 1]);
+        }
+    }
+
+}